@@ -0,0 +1,135 @@
+package com.lazymcvelocitycrafty.bench;
+
+import com.lazymcvelocitycrafty.LazyMCVelocityCrafty;
+import com.lazymcvelocitycrafty.OfflineWiring;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.group.GroupManager;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import com.lazymcvelocitycrafty.mode.ModeManager;
+import com.lazymcvelocitycrafty.prewarm.PrewarmManager;
+import com.lazymcvelocitycrafty.server.ServerManager;
+import com.lazymcvelocitycrafty.sim.Stubs;
+import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Offline plugin wiring for benchmarks: a stubbed ProxyServer with N players spread over S
+ * backends, a config.toml in a temp directory, and the real plugin components on top.
+ */
+final class BenchFixtures {
+
+  static final Logger LOG = NOPLogger.NOP_LOGGER;
+
+  final Path dataDir;
+  final Map<String, RegisteredServer> servers = new HashMap<>();
+  final Map<UUID, Player> players = new HashMap<>();
+  final ProxyServer proxy;
+  final LazyMCVelocityCrafty plugin;
+  final PluginConfig config;
+  final ServerManager serverManager;
+  final ModeManager modeManager;
+
+  BenchFixtures(int serverCount, int playerCount) throws Exception {
+    dataDir = Files.createTempDirectory("lazymc-bench");
+    writeConfig(dataDir, serverCount);
+
+    servers.put("lobby", registeredServer("lobby"));
+    for (int i = 0; i < serverCount; i++) {
+      servers.put("server" + i, registeredServer("server" + i));
+    }
+    for (int i = 0; i < playerCount; i++) {
+      UUID id = new UUID(0L, i);
+      players.put(id, player(id, servers.get("server" + (i % serverCount))));
+    }
+
+    Collection<Player> all = List.copyOf(players.values());
+    proxy = Stubs.of(ProxyServer.class, Map.of(
+      "getServer", a -> Optional.ofNullable(servers.get((String) a[0])),
+      "getPlayer", a -> (a[0] instanceof UUID) ? Optional.ofNullable(players.get((UUID) a[0])) : Optional.empty(),
+      "getAllPlayers", a -> all,
+      "getPlayerCount", a -> all.size()
+    ));
+
+    plugin = new LazyMCVelocityCrafty(proxy, LOG, dataDir);
+    config = PluginConfig.load(dataDir, LOG);
+    serverManager = new ServerManager(plugin, config, new Metrics(), LOG);
+    modeManager = new ModeManager(dataDir, LOG);
+    modeManager.load();
+    PrewarmManager prewarm = new PrewarmManager(plugin, config, serverManager, modeManager, dataDir, LOG);
+    GroupManager groups = new GroupManager(plugin, config, serverManager, modeManager, LOG);
+    OfflineWiring.attach(plugin, config, serverManager, modeManager, prewarm, groups, null);
+
+    for (Player p : all) {
+      p.getCurrentServer().ifPresent(c -> serverManager.getPresence().connected(p.getUniqueId(), c.getServerInfo().getName()));
+    }
+  }
+
+  void close() throws IOException {
+    serverManager.shutdown();
+    modeManager.close();
+  }
+
+  static void writeConfig(Path dir, int serverCount) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    sb.append("lobby_server = \"lobby\"\n");
+    sb.append("watch_config = false\n");
+    sb.append("probe_interval_seconds = 3600\n");
+    sb.append("crafty.host = \"http://127.0.0.1:1\"\n");
+    sb.append("[servers]\n");
+    for (int i = 0; i < serverCount; i++) {
+      sb.append("[servers.server").append(i).append("]\n");
+      sb.append("uuid = \"").append(new UUID(1L, i)).append("\"\n");
+      sb.append("idle_timeout_seconds = ").append(300 + i).append('\n');
+    }
+    Files.writeString(dir.resolve("config.toml"), sb.toString());
+  }
+
+  static RegisteredServer registeredServer(String name) {
+    ServerInfo info = new ServerInfo(name, InetSocketAddress.createUnresolved("127.0.0.1", 25565));
+    return Stubs.of(RegisteredServer.class, Map.of(
+      "getServerInfo", a -> info,
+      "ping", a -> new CompletableFuture<>()
+    ));
+  }
+
+  static Player player(UUID id, RegisteredServer on) {
+    ServerConnection conn = Stubs.of(ServerConnection.class, Map.of(
+      "getServerInfo", a -> on.getServerInfo(),
+      "getServer", a -> on
+    ));
+    ConnectionRequestBuilder request = Stubs.of(ConnectionRequestBuilder.class, Map.of(
+      "connect", a -> new CompletableFuture<>()
+    ));
+    return Stubs.of(Player.class, Map.of(
+      "getUniqueId", a -> id,
+      "getUsername", a -> "p" + id.getLeastSignificantBits(),
+      "getCurrentServer", a -> Optional.of(conn),
+      "createConnectionRequest", a -> request
+    ));
+  }
+
+  static List<String> names(int count) {
+    List<String> out = new ArrayList<>();
+    for (int i = 0; i < count; i++) out.add("server" + i);
+    return out;
+  }
+}
@@ -0,0 +1,67 @@
+package com.lazymcvelocitycrafty.bench;
+
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Per-server lookups done on every connect and idle check, plus a full reload for scale. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigLookupBenchmark {
+
+  private PluginConfig config;
+  private List<String> names;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    Path dir = Files.createTempDirectory("lazymc-bench-config");
+    BenchFixtures.writeConfig(dir, 64);
+    config = PluginConfig.load(dir, BenchFixtures.LOG);
+    names = BenchFixtures.names(64);
+  }
+
+  private String nextName() {
+    next = (next + 1) & 63;
+    return names.get(next);
+  }
+
+  @Benchmark
+  public boolean isManaged() {
+    return config.getManagedServers().contains(nextName());
+  }
+
+  @Benchmark
+  public int idleTimeout() {
+    return config.getIdleTimeoutSeconds(nextName());
+  }
+
+  @Benchmark
+  public Object serverUuid() {
+    return config.getServerUuid(nextName());
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public Object reload() throws Exception {
+    return config.reload();
+  }
+}
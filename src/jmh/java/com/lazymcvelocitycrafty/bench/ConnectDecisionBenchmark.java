@@ -0,0 +1,74 @@
+package com.lazymcvelocitycrafty.bench;
+
+import com.lazymcvelocitycrafty.listeners.PlayerServerConnectListener;
+import com.lazymcvelocitycrafty.server.ServerState;
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synchronous part of the pre-connect decision: the path every backend switch pays, whether or
+ * not the target is managed. Continuations are not resumed, so only the decision is timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectDecisionBenchmark {
+
+  private BenchFixtures fx;
+  private PlayerServerConnectListener listener;
+  private Player player;
+  private RegisteredServer online;
+  private RegisteredServer starting;
+  private RegisteredServer unmanaged;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    fx = new BenchFixtures(16, 100);
+    listener = new PlayerServerConnectListener(fx.plugin, fx.serverManager, fx.modeManager);
+    player = fx.players.values().iterator().next();
+    online = fx.servers.get("server1");
+    starting = fx.servers.get("server2");
+    unmanaged = fx.servers.get("lobby");
+    fx.serverManager.getStates().transition("server1", ServerState.ONLINE);
+    fx.serverManager.getStates().transition("server2", ServerState.STARTING);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    fx.close();
+  }
+
+  @Benchmark
+  public EventTask unmanagedTarget() {
+    return listener.onServerPreConnect(new ServerPreConnectEvent(player, unmanaged));
+  }
+
+  @Benchmark
+  public EventTask onlineTarget() {
+    return listener.onServerPreConnect(new ServerPreConnectEvent(player, online));
+  }
+
+  @Benchmark
+  public EventTask startingTarget() {
+    return listener.onServerPreConnect(new ServerPreConnectEvent(player, starting));
+  }
+}
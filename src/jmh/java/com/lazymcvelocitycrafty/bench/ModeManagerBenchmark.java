@@ -0,0 +1,64 @@
+package com.lazymcvelocitycrafty.bench;
+
+import com.lazymcvelocitycrafty.mode.ModeManager;
+import com.lazymcvelocitycrafty.mode.ServerMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mode changes as seen by the command thread (setMode only enqueues a coalesced write) and the
+ * cost of the write itself with 64 servers in modes.json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModeManagerBenchmark {
+
+  private static final ServerMode[] MODES = ServerMode.values();
+
+  private ModeManager modes;
+  private List<String> names;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    modes = new ModeManager(Files.createTempDirectory("lazymc-bench-modes"), BenchFixtures.LOG);
+    modes.load();
+    names = BenchFixtures.names(64);
+    for (String name : names) modes.setMode(name, ServerMode.STANDARD);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    modes.close();
+  }
+
+  @Benchmark
+  public void setMode() {
+    next++;
+    modes.setMode(names.get(next & 63), MODES[next % MODES.length]);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void save() {
+    modes.save();
+  }
+}
@@ -0,0 +1,63 @@
+package com.lazymcvelocitycrafty.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-server player count and lobby evacuation at 1k/10k online players. {@code scanPlayerCount}
+ * is the old full-proxy stream scan, kept as the reference the presence index is measured against.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerCountBenchmark {
+
+  @Param({"1000", "10000"})
+  public int players;
+
+  private BenchFixtures fx;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    fx = new BenchFixtures(16, players);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    fx.close();
+  }
+
+  @Benchmark
+  public int indexedPlayerCount() {
+    return fx.serverManager.getPlayerCount("server3");
+  }
+
+  @Benchmark
+  public long scanPlayerCount() {
+    return fx.proxy.getAllPlayers().stream()
+      .filter(p -> p.getCurrentServer().map(s -> s.getServerInfo().getName().equals("server3")).orElse(false))
+      .count();
+  }
+
+  @Benchmark
+  public void movePlayersToLobby() {
+    // connect() stubs never complete, so the index is unchanged and every call moves the same set
+    fx.serverManager.movePlayersToLobby("server3", "lobby");
+  }
+}
@@ -1,19 +1,30 @@
-package com.example.lazymcvelocitycrafty;
+package com.lazymcvelocitycrafty;
 // Holy shit, that is a lot of imports
 import com.lazymcvelocitycrafty.commands.ModeCommand;
+import com.lazymcvelocitycrafty.commands.ReloadCommand;
 import com.lazymcvelocitycrafty.commands.StartStopCommand;
-import com.lazymcvelocitycrafty.config.ConfigManager;
+import com.lazymcvelocitycrafty.commands.StatsCommand;
+import com.lazymcvelocitycrafty.config.ConfigWatcher;
 import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.group.GroupManager;
+import com.lazymcvelocitycrafty.listeners.ActivityListener;
+import com.lazymcvelocitycrafty.listeners.PlayerPresenceListener;
 import com.lazymcvelocitycrafty.listeners.PlayerServerConnectListener;
+import com.lazymcvelocitycrafty.listeners.ProxyPingListener;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import com.lazymcvelocitycrafty.metrics.MetricsHttpServer;
 import com.lazymcvelocitycrafty.mode.ModeManager;
+import com.lazymcvelocitycrafty.prewarm.PrewarmManager;
 import com.lazymcvelocitycrafty.server.ServerManager;
 import com.lazymcvelocitycrafty.tracker.InactivityTracker;
 import com.velocitypowered.api.command.CommandManager;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
 import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
 import org.slf4j.Logger;
 
 import javax.inject.Inject;
@@ -23,7 +34,7 @@ import java.nio.file.Path;
   id = "lazymcvelocitycrafty",
   name = "LazyMCVelocityCrafty",
   version = "1.0.0",
-  description = "Manages Velocity backend server startup/shutdown through Crafty Controller v2 API"
+  description = "Manages Velocity backend server startup/shutdown through Crafty Controller v2 API",
   authors = {"RealNV2k"}
 )
 public class LazyMCVelocityCrafty {
@@ -36,6 +47,11 @@ public class LazyMCVelocityCrafty {
   private ServerManager serverManager;
   private ModeManager modeManager;
   private InactivityTracker inactivityTracker;
+  private PrewarmManager prewarmManager;
+  private GroupManager groupManager;
+  private ConfigWatcher configWatcher;
+  private final Metrics metrics = new Metrics();
+  private MetricsHttpServer metricsServer;
 
   @Inject
   public LazyMCVelocityCrafty(ProxyServer proxy, Logger logger, @DataDirectory Path dataDirectory) {
@@ -50,18 +66,25 @@ public class LazyMCVelocityCrafty {
 
     // Load Config
     try {
-      this.config = ConfigManager.load(dataDirectory, logger);
+      this.config = PluginConfig.load(dataDirectory, logger);
     } catch (Exception ex) {
       logger.error("Failed to load config.toml, shutting down plugin", ex);
       return;
     }
 
     // Initialize server manager
-    serverManager = new ServerManager(proxy, config, logger);
+    serverManager = new ServerManager(this, config, metrics, logger);
     
     // Initialization ModeManager and load modes.json
     modeManager = new ModeManager(dataDirectory, logger);
     modeManager.load();
+
+    // Demand histogram for pre-warming (demand.json)
+    prewarmManager = new PrewarmManager(this, config, serverManager, modeManager, dataDirectory, logger);
+    prewarmManager.load();
+
+    // Server groups with warm spares
+    groupManager = new GroupManager(this, config, serverManager, modeManager, logger);
     
     // Register commands
     // /lvmode <server> <mode|view>
@@ -80,12 +103,65 @@ public class LazyMCVelocityCrafty {
       new StartStopCommand(serverManager, false)
     );
 
+    // /lvreload
+    proxy.getCommandManager().register(
+      proxy.getCommandManager().metaBuilder("lvreload").permission("lazymc.reload").build(),
+      new ReloadCommand(config)
+    );
+
+    // /lvstats
+    proxy.getCommandManager().register(
+      proxy.getCommandManager().metaBuilder("lvstats").permission("lazymc.stats").build(),
+      new StatsCommand(config, serverManager, prewarmManager, groupManager)
+    );
+
+    // Optional Prometheus endpoint
+    if (config.isMetricsEnabled()) {
+      metricsServer = new MetricsHttpServer(metrics, logger);
+      try {
+        metricsServer.start(config.getMetricsBindAddress(), config.getMetricsPort());
+      } catch (Exception ex) {
+        logger.warn("Could not start metrics endpoint: {}", ex.getMessage());
+      }
+    }
+
     // Register listener with ModeManager
     proxy.getEventManager().register(this, new PlayerServerConnectListener(this, serverManager, modeManager));
+    proxy.getEventManager().register(this, new PlayerPresenceListener(serverManager.getPresence()));
+    // Server-list pings for forced hosts of managed servers, answered from cached status
+    if (config.isPingEnabled()) {
+      proxy.getEventManager().register(this, new ProxyPingListener(proxy, config, serverManager, metrics));
+    }
   
     // Schedule inactivity tracker
-    InactivityTracker inactivityTracker = new InactivityTracker(proxy, logger, config, modeManager, serverManager, this);
+    inactivityTracker = new InactivityTracker(this, config, modeManager, serverManager, logger);
     inactivityTracker.scheduleChecker();
+
+    // Activity signals for idle detection, plus the optional backend heartbeat channel
+    MinecraftChannelIdentifier heartbeat = null;
+    if (!config.getActivityHeartbeatChannel().isEmpty()) {
+      try {
+        heartbeat = MinecraftChannelIdentifier.from(config.getActivityHeartbeatChannel());
+        proxy.getChannelRegistrar().register(heartbeat);
+      } catch (IllegalArgumentException ex) {
+        logger.warn("Invalid activity_heartbeat_channel '{}', heartbeats disabled: {}", config.getActivityHeartbeatChannel(), ex.getMessage());
+        heartbeat = null;
+      }
+    }
+    proxy.getEventManager().register(this, new ActivityListener(inactivityTracker, heartbeat));
+
+    prewarmManager.schedule();
+    groupManager.schedule();
+
+    // Hot reload on config.toml edits
+    if (config.isWatchConfig()) {
+      configWatcher = new ConfigWatcher(config, logger);
+      try {
+        configWatcher.start();
+      } catch (Exception ex) {
+        logger.warn("Could not watch config.toml for changes, use /lvreload instead: {}", ex.getMessage());
+      }
+    }
   
     logger.info("LazyMCVelocityCrafty initialized successfully.");
   }
@@ -93,7 +169,36 @@ public class LazyMCVelocityCrafty {
   @com.velocitypowered.api.event.Subscribe
   public void onProxyShutdown(ProxyShutdownEvent event) {
     logger.info("LazyMCVelocityCrafty shutting down...");
-    // Add cleanup code if needed
+    if (serverManager != null) {
+      serverManager.shutdown();
+    }
+    if (configWatcher != null) {
+      configWatcher.close();
+    }
+    if (metricsServer != null) {
+      metricsServer.stop();
+    }
+    if (modeManager != null) {
+      modeManager.close();
+    }
+    if (prewarmManager != null && prewarmManager.isEnabled()) {
+      prewarmManager.save();
+    }
+  }
+
+  /**
+   * Wires components built elsewhere in place of onProxyInitialization. Test, benchmark and
+   * simulation use only, reached through OfflineWiring in the sim source set; nothing is scheduled
+   * or registered here.
+   */
+  void attach(PluginConfig config, ServerManager serverManager, ModeManager modeManager,
+                     PrewarmManager prewarmManager, GroupManager groupManager, InactivityTracker inactivityTracker) {
+    this.config = config;
+    this.serverManager = serverManager;
+    this.modeManager = modeManager;
+    this.prewarmManager = prewarmManager;
+    this.groupManager = groupManager;
+    this.inactivityTracker = inactivityTracker;
   }
 
   public ProxyServer getProxy() {
@@ -104,11 +209,31 @@ public class LazyMCVelocityCrafty {
     return config;
   }
 
+  public Path getDataDirectory() {
+    return dataDirectory;
+  }
+
   public ServerManager getServerManager() {
     return serverManager;
   }
 
+  public GroupManager getGroupManager() {
+    return groupManager;
+  }
+
   public ModeManager getModeManager() {
     return modeManager;
   }
+
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
+  public PrewarmManager getPrewarmManager() {
+    return prewarmManager;
+  }
+
+  public InactivityTracker getInactivityTracker() {
+    return inactivityTracker;
+  }
 }
@@ -1,7 +1,7 @@
 package com.lazymcvelocitycrafty.commands;
 
-import com.lazymcvelocity.mode.ModeManager;
-import com.lazymcvelocity.mode.ServerMode;
+import com.lazymcvelocitycrafty.mode.ModeManager;
+import com.lazymcvelocitycrafty.mode.ServerMode;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import net.kyori.adventure.text.Component;
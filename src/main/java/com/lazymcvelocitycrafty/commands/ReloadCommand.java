@@ -0,0 +1,35 @@
+package com.lazymcvelocitycrafty.commands;
+
+import com.lazymcvelocitycrafty.config.ConfigDiff;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+/**
+ * /lvreload
+ */
+public class ReloadCommand implements SimpleCommand {
+
+  private final PluginConfig config;
+
+  public ReloadCommand(PluginConfig config) {
+    this.config = config;
+  }
+
+  @Override
+  public void execute(Invocation invocation) {
+    CommandSource src = invocation.source();
+    try {
+      ConfigDiff diff = config.reload();
+      src.sendMessage(Component.text("Config reloaded: " + diff.added().size() + " added, "
+        + diff.removed().size() + " removed, " + diff.changed().size() + " changed servers.").color(NamedTextColor.GREEN));
+      if (diff.restartRequired()) {
+        src.sendMessage(Component.text("Some changed settings only apply after a proxy restart.").color(NamedTextColor.YELLOW));
+      }
+    } catch (Exception ex) {
+      src.sendMessage(Component.text("Reload failed, previous config kept: " + ex.getMessage()).color(NamedTextColor.RED));
+    }
+  }
+}
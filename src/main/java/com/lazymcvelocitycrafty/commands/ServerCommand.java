@@ -2,6 +2,7 @@ package com.lazymcvelocitycrafty.commands;
 
 import com.lazymcvelocitycrafty.config.PluginConfig;
 import com.lazymcvelocitycrafty.server.ServerManager;
+import com.lazymcvelocitycrafty.server.ServerState;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import com.velocitypowered.api.proxy.Player;
@@ -9,8 +10,6 @@ import com.velocitypowered.api.proxy.ProxyServer;
 import net.kyori.adventure.text.Component;
 import org.slf4j.Logger;
 
-import java.util.concurrent.CompletableFuture;
-
 public class ServerCommand implements SimpleCommand {
 
   private final ProxyServer proxy;
@@ -52,17 +51,14 @@ public class ServerCommand implements SimpleCommand {
       return;
     }
 
-    // Start server
+    // Start server; AutoConnectDispatcher connects the player once it is online
     player.sendMessage(Component.text(target + " is currently starting. You will be connected automatically."));
-    serverManager.startServer(target).thenRun(() -> {
-      CompletableFuture<Boolean> ready = serverManager.waitForServer(target);
-      ready.thenAccept(success -> {
-        if (success) {
-          proxy.getServer(target).ifPresent(server -> player.createConnectionRequest(server).connect());
-        } else {
-          player.sendMessage(Component.text("Failed to connect to " + target + " (startup timeout)."));
-        }
+    serverManager.addPendingPlayer(target, player.getUniqueId());
+    if (serverManager.getServerState(target) != ServerState.STARTING) {
+      serverManager.startServer(target).exceptionally(ex -> {
+        player.sendMessage(Component.text("Failed to request server start: " + ex.getMessage()));
+        return null;
       });
-    });
+    }
   }
 }
@@ -0,0 +1,85 @@
+package com.lazymcvelocitycrafty.commands;
+
+import com.lazymcvelocitycrafty.config.GroupSettings;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.crafty.CraftyClient;
+import com.lazymcvelocitycrafty.crafty.CraftyStats;
+import com.lazymcvelocitycrafty.group.GroupManager;
+import com.lazymcvelocitycrafty.prewarm.PrewarmManager;
+import com.lazymcvelocitycrafty.server.BackendStatus;
+import com.lazymcvelocitycrafty.server.ServerManager;
+import com.lazymcvelocitycrafty.server.ServerState;
+import com.lazymcvelocitycrafty.server.StartupStats;
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * /lvstats - human-readable summary of the same numbers the metrics endpoint exports.
+ */
+public class StatsCommand implements SimpleCommand {
+
+  private final PluginConfig config;
+  private final ServerManager serverManager;
+  private final PrewarmManager prewarmManager;
+  private final GroupManager groupManager;
+
+  public StatsCommand(PluginConfig config, ServerManager serverManager, PrewarmManager prewarmManager,
+                      GroupManager groupManager) {
+    this.config = config;
+    this.serverManager = serverManager;
+    this.prewarmManager = prewarmManager;
+    this.groupManager = groupManager;
+  }
+
+  @Override
+  public void execute(Invocation invocation) {
+    CommandSource src = invocation.source();
+    long now = System.currentTimeMillis();
+
+    src.sendMessage(Component.text("Managed servers:").color(NamedTextColor.GOLD));
+    for (String name : new TreeSet<>(config.getManagedServers())) {
+      BackendStatus st = serverManager.getStates().getStatus(name);
+      long forSeconds = (st.getSinceMillis() == 0) ? 0 : (now - st.getSinceMillis()) / 1000L;
+      StartupStats boots = serverManager.getStartupStats();
+      long boot = boots.getExpectedMillis(name);
+      String bootText = (boot < 0) ? "?" : String.format("%ds (p50 %ds, p90 %ds, n=%d)", boot / 1000L,
+        boots.getPercentileMillis(name, 0.5) / 1000L, boots.getPercentileMillis(name, 0.9) / 1000L, boots.getSampleCount(name));
+      src.sendMessage(Component.text(String.format(" %s: %s for %ds, players=%d, pending=%d, boot~%s",
+        name, st.getState(), forSeconds, serverManager.getPlayerCount(name), serverManager.getPendingCount(name),
+        bootText)).color(st.getState() == ServerState.ONLINE ? NamedTextColor.GREEN : NamedTextColor.GRAY));
+    }
+
+    src.sendMessage(Component.text("Start queue: " + serverManager.getStartScheduler().getQueueDepth()).color(NamedTextColor.GOLD));
+    for (Map.Entry<String, CraftyClient> host : serverManager.getCrafty().getClients().entrySet()) {
+      CraftyClient crafty = host.getValue();
+      src.sendMessage(Component.text("Crafty " + host.getKey() + " (" + crafty.getBaseUrl() + "): breaker " + crafty.getBreakerState()
+        + ", in flight " + crafty.getInFlight() + ", queued " + crafty.getQueued()).color(NamedTextColor.GOLD));
+      for (Map.Entry<String, CraftyStats.ActionStats> e : crafty.getStats().getActions().entrySet()) {
+        CraftyStats.ActionStats a = e.getValue();
+        src.sendMessage(Component.text(String.format(" %s: %d calls, %d failed, mean %.0f ms, max %d ms, by status %s",
+          e.getKey(), a.getCalls(), a.getFailures(), a.getMeanMillis(), a.getMaxMillis(), a.getByStatus())).color(NamedTextColor.GRAY));
+      }
+    }
+
+    for (GroupSettings g : new TreeMap<>(config.getGroups()).values()) {
+      long online = g.members().stream().filter(serverManager::isServerOnline).count();
+      String elastic = g.isElastic() ? String.format(", occupancy %.0f%% (out at %.0f%%, in at %.0f%%)",
+        groupManager.getOccupancy(g) * 100, g.scaleOutOccupancy() * 100, g.scaleInOccupancy() * 100) : "";
+      long drainingCount = g.members().stream().filter(groupManager::isDraining).count();
+      src.sendMessage(Component.text(String.format("Group %s (%s): %d/%d online, %d draining, %d/%d warm spares%s",
+        g.name(), g.routing(), online, g.members().size(), drainingCount, groupManager.countSpares(g), g.warmSpares(),
+        elastic)).color(NamedTextColor.GOLD));
+    }
+
+    if (prewarmManager.isEnabled()) {
+      src.sendMessage(Component.text(String.format("Pre-warm: %d started, %d hits, %d misses",
+        prewarmManager.getPrewarms(), prewarmManager.getHits(), prewarmManager.getMisses())).color(NamedTextColor.GOLD));
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.lazymcvelocitycrafty.config;
+
+import java.util.Set;
+
+/**
+ * What changed between two config snapshots, handed to reload listeners.
+ *
+ *  - added / removed / changed: server names whose [servers.<name>] table appeared, disappeared
+ *    or differs
+ *  - restartRequired: a global setting that is only read at startup (Crafty client, poll rates,
+ *    ...) changed and will not take effect until the proxy restarts
+ */
+public record ConfigDiff(Set<String> added, Set<String> removed, Set<String> changed, boolean restartRequired) {
+
+  public boolean isEmpty() {
+    return added.isEmpty() && removed.isEmpty() && changed.isEmpty() && !restartRequired;
+  }
+}
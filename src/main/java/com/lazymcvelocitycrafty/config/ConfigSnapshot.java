@@ -0,0 +1,290 @@
+package com.lazymcvelocitycrafty.config;
+
+import org.slf4j.Logger;
+import org.tomlj.TomlArray;
+import org.tomlj.TomlParseResult;
+import org.tomlj.TomlTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * One immutable, fully parsed config.toml. PluginConfig swaps whole snapshots on reload, so a
+ * reader always sees values from a single version of the file.
+ */
+final class ConfigSnapshot {
+
+  final String craftyHost;
+  final String craftyApiKey;
+  final int craftyRequestTimeoutSeconds;
+  final int craftyMaxRetries;
+  final int craftyMaxConcurrentRequests;
+  final int craftyBreakerFailureThreshold;
+  final int craftyBreakerOpenSeconds;
+  final boolean craftyStatusPoll;
+  final int craftyStatusPollIntervalSeconds;
+  final int craftyMaxConcurrentBootCost;
+  final String lobbyServer;
+  final int maxStartWaitSeconds;
+  final int checkIntervalSeconds;
+  final int probeIntervalSeconds;
+  final int probeTimeoutMillis;
+  final int probeFastIntervalMillis;
+  final int probeMaxIntervalMillis;
+  final int presenceReconcileSeconds;
+  final int progressIntervalSeconds;
+  final String activityHeartbeatChannel;
+  final boolean handleFallbackOnForcedOff;
+  final boolean watchConfig;
+  final boolean metricsEnabled;
+  final String metricsBindAddress;
+  final int metricsPort;
+  final boolean prewarmEnabled;
+  final int prewarmLeadMinutes;
+  final double prewarmMinExpectedJoins;
+  final double prewarmHalfLifeDays;
+  final int shutdownStaggerSeconds;
+  final int shutdownMaxConcurrentPerHost;
+  final int localMaxConcurrentBootCost;
+  final boolean pingEnabled;
+  final String pingSleepingMotd;
+  final String pingStartingMotd;
+  final int pingRefreshSeconds;
+  // hostId -> Crafty instance, always including "default" (the crafty.* keys)
+  final Map<String, CraftyHostSettings> craftyHosts;
+  // serverName -> typed settings
+  final Map<String, ServerSettings> servers;
+  // groupName -> settings, and member serverName -> groupName
+  final Map<String, GroupSettings> groups;
+  final Map<String, String> groupOf;
+
+  ConfigSnapshot(TomlParseResult res, Logger logger) {
+    // Crafty
+    craftyHost = res.getString("crafty.host", () -> "https://127.0.0.1:8443");
+    craftyApiKey = res.getString("crafty.api_key", () -> "");
+    craftyRequestTimeoutSeconds = intOf(res, "crafty.request_timeout_seconds", 20);
+    craftyMaxRetries = intOf(res, "crafty.max_retries", 2);
+    craftyMaxConcurrentRequests = intOf(res, "crafty.max_concurrent_requests", 4);
+    craftyBreakerFailureThreshold = intOf(res, "crafty.breaker_failure_threshold", 5);
+    craftyBreakerOpenSeconds = intOf(res, "crafty.breaker_open_seconds", 30);
+    craftyStatusPoll = res.getBoolean("crafty.status_poll", () -> false);
+    craftyStatusPollIntervalSeconds = intOf(res, "crafty.status_poll_interval_seconds", 5);
+    craftyMaxConcurrentBootCost = intOf(res, "crafty.max_concurrent_boot_cost", 2);
+    // Other
+    lobbyServer = res.getString("lobby_server", () -> "lobby");
+    maxStartWaitSeconds = intOf(res, "max_start_wait_seconds", 120);
+    checkIntervalSeconds = intOf(res, "check_interval_seconds", 5);
+    probeIntervalSeconds = intOf(res, "probe_interval_seconds", 10);
+    probeTimeoutMillis = intOf(res, "probe_timeout_millis", 3000);
+    probeFastIntervalMillis = intOf(res, "probe_fast_interval_millis", 500);
+    probeMaxIntervalMillis = intOf(res, "probe_max_interval_millis", 10000);
+    presenceReconcileSeconds = intOf(res, "presence_reconcile_seconds", 60);
+    progressIntervalSeconds = intOf(res, "progress_interval_seconds", 2);
+    activityHeartbeatChannel = res.getString("activity_heartbeat_channel", () -> "");
+    handleFallbackOnForcedOff = res.getBoolean("handle_fallback_on_forced_off", () -> true);
+    watchConfig = res.getBoolean("watch_config", () -> true);
+    metricsEnabled = res.getBoolean("metrics.enabled", () -> false);
+    metricsBindAddress = res.getString("metrics.bind_address", () -> "127.0.0.1");
+    metricsPort = intOf(res, "metrics.port", 9225);
+    prewarmEnabled = res.getBoolean("prewarm.enabled", () -> false);
+    prewarmLeadMinutes = intOf(res, "prewarm.lead_minutes", 15);
+    prewarmMinExpectedJoins = res.getDouble("prewarm.min_expected_joins", () -> 1.0);
+    prewarmHalfLifeDays = res.getDouble("prewarm.half_life_days", () -> 28.0);
+    shutdownStaggerSeconds = intOf(res, "shutdown.stagger_seconds", 15);
+    shutdownMaxConcurrentPerHost = intOf(res, "shutdown.max_concurrent_per_host", 1);
+    localMaxConcurrentBootCost = intOf(res, "local.max_concurrent_boot_cost", 1);
+    pingEnabled = res.getBoolean("ping.enabled", () -> false);
+    pingSleepingMotd = res.getString("ping.sleeping_motd", () -> "<gray><server> is sleeping. <yellow>Join to wake it up!");
+    pingStartingMotd = res.getString("ping.starting_motd", () -> "<yellow><server> is starting, join to be connected when ready");
+    pingRefreshSeconds = intOf(res, "ping.refresh_seconds", 30);
+
+    // Crafty instances: crafty.* is "default", [crafty_hosts.<id>] add more and inherit its limits
+    Map<String, CraftyHostSettings> hosts = new HashMap<>();
+    hosts.put(CraftyHostSettings.DEFAULT_ID, new CraftyHostSettings(CraftyHostSettings.DEFAULT_ID, craftyHost, craftyApiKey,
+      craftyMaxConcurrentRequests, craftyMaxConcurrentBootCost));
+    TomlTable hostsTable = res.getTable("crafty_hosts");
+    if (hostsTable != null) {
+      for (String id : hostsTable.keySet()) {
+        TomlTable tbl = hostsTable.getTable(id);
+        if (tbl == null || tbl.getString("host") == null) {
+          logger.warn("Ignoring [crafty_hosts.{}]: no host set", id);
+          continue;
+        }
+        if (LocalProcessSettings.HOST_ID.equals(id)) {
+          logger.warn("Ignoring [crafty_hosts.{}]: the id is reserved for locally run servers", id);
+          continue;
+        }
+        hosts.put(id, new CraftyHostSettings(id, tbl.getString("host"), tbl.getString("api_key", () -> craftyApiKey),
+          intOf(tbl, "max_concurrent_requests", craftyMaxConcurrentRequests),
+          intOf(tbl, "max_concurrent_boot_cost", craftyMaxConcurrentBootCost)));
+      }
+    }
+    craftyHosts = Collections.unmodifiableMap(hosts);
+
+    // Per-server tables: toml library returns table for "servers"
+    Map<String, ServerSettings> parsed = new HashMap<>();
+    TomlTable serversTable = res.getTable("servers");
+    if (serversTable != null) {
+      for (String key : serversTable.keySet()) {
+        try {
+          TomlTable tbl = serversTable.getTable(key);
+          if (tbl != null) {
+            String host = tbl.getString("crafty_host", () -> CraftyHostSettings.DEFAULT_ID);
+            if (!hosts.containsKey(host)) {
+              logger.warn("Server '{}' uses unknown crafty_host '{}', using the default Crafty host", key, host);
+              host = CraftyHostSettings.DEFAULT_ID;
+            }
+            String driver = tbl.getString("driver", () -> ServerSettings.DRIVER_CRAFTY);
+            LocalProcessSettings local = null;
+            if (ServerSettings.DRIVER_LOCAL.equals(driver)) {
+              local = localSettings(key, tbl);
+            } else if (!ServerSettings.DRIVER_CRAFTY.equals(driver)) {
+              throw new IllegalArgumentException("unknown driver '" + driver + "'");
+            }
+            parsed.put(key, new ServerSettings(
+              key,
+              tbl.getString("uuid"),
+              intOf(tbl, "idle_timeout_seconds", ServerSettings.DEFAULT_IDLE_TIMEOUT_SECONDS),
+              intOf(tbl, "hold_max_boot_seconds", 0),
+              intOf(tbl, "boot_cost", 1),
+              host,
+              driver,
+              local));
+          }
+        } catch (Exception ex) {
+          logger.warn("Failed to read server config for '{}': {}", key, ex.getMessage());
+        }
+      }
+    }
+    servers = Collections.unmodifiableMap(parsed);
+
+    // Server groups: members must be managed servers and belong to one group only
+    Map<String, GroupSettings> parsedGroups = new HashMap<>();
+    Map<String, String> memberOf = new HashMap<>();
+    TomlTable groupsTable = res.getTable("groups");
+    if (groupsTable != null) {
+      for (String key : groupsTable.keySet()) {
+        TomlTable tbl = groupsTable.getTable(key);
+        TomlArray arr = (tbl == null) ? null : tbl.getArray("members");
+        if (arr == null || arr.isEmpty()) {
+          logger.warn("Ignoring [groups.{}]: no members", key);
+          continue;
+        }
+        if (parsed.containsKey(key)) {
+          logger.warn("Ignoring [groups.{}]: a server has the same name", key);
+          continue;
+        }
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i < arr.size(); i++) {
+          String member = arr.getString(i);
+          if (!parsed.containsKey(member)) {
+            logger.warn("Group '{}': '{}' is not a configured server, skipping it", key, member);
+          } else if (memberOf.putIfAbsent(member, key) != null) {
+            logger.warn("Group '{}': '{}' already belongs to group '{}', skipping it", key, member, memberOf.get(member));
+          } else {
+            members.add(member);
+          }
+        }
+        if (members.isEmpty()) continue;
+        parsedGroups.put(key, groupSettings(key, List.copyOf(members), tbl, logger));
+      }
+    }
+    groups = Collections.unmodifiableMap(parsedGroups);
+    groupOf = Collections.unmodifiableMap(memberOf);
+  }
+
+  ConfigDiff diff(ConfigSnapshot next) {
+    Set<String> added = new HashSet<>(next.servers.keySet());
+    added.removeAll(servers.keySet());
+    Set<String> removed = new HashSet<>(servers.keySet());
+    removed.removeAll(next.servers.keySet());
+    Set<String> changed = new HashSet<>();
+    for (Map.Entry<String, ServerSettings> e : servers.entrySet()) {
+      ServerSettings other = next.servers.get(e.getKey());
+      if (other != null && !other.equals(e.getValue())) changed.add(e.getKey());
+    }
+    return new ConfigDiff(Set.copyOf(added), Set.copyOf(removed), Set.copyOf(changed),
+      !startupOnlyValues().equals(next.startupOnlyValues()));
+  }
+
+  // values captured once by long-lived components (HTTP client, poll tasks, histogram)
+  private List<Object> startupOnlyValues() {
+    return List.of(Objects.toString(craftyHost), Objects.toString(craftyApiKey), craftyRequestTimeoutSeconds,
+      craftyMaxRetries, craftyMaxConcurrentRequests, craftyBreakerFailureThreshold, craftyBreakerOpenSeconds,
+      craftyStatusPoll, craftyStatusPollIntervalSeconds, probeIntervalSeconds, presenceReconcileSeconds,
+      watchConfig, metricsEnabled, metricsBindAddress, metricsPort, prewarmEnabled, prewarmHalfLifeDays,
+      Objects.toString(activityHeartbeatChannel), pingEnabled, craftyClientValues());
+  }
+
+  // per-host values baked into each CraftyClient; boot cost stays hot-reloadable
+  private Map<String, List<Object>> craftyClientValues() {
+    Map<String, List<Object>> out = new HashMap<>();
+    craftyHosts.forEach((id, h) -> out.put(id, List.of(Objects.toString(h.baseUrl()), Objects.toString(h.apiKey()),
+      h.maxConcurrentRequests())));
+    return out;
+  }
+
+  private static GroupSettings groupSettings(String name, List<String> members, TomlTable tbl, Logger logger) {
+    String routing = tbl.getString("routing", () -> GroupSettings.ROUTING_PACK);
+    if (!GroupSettings.ROUTING_PACK.equals(routing) && !GroupSettings.ROUTING_LEAST_LOADED.equals(routing)) {
+      logger.warn("Group '{}': unknown routing '{}', using '{}'", name, routing, GroupSettings.ROUTING_PACK);
+      routing = GroupSettings.ROUTING_PACK;
+    }
+    int maxPlayers = Math.max(0, intOf(tbl, "max_players_per_member", 0));
+    double scaleOut = tbl.getDouble("scale_out_occupancy", () -> 0.0);
+    double scaleIn = tbl.getDouble("scale_in_occupancy", () -> 0.3);
+    if (scaleOut > 0 && maxPlayers == 0) {
+      logger.warn("Group '{}': scale_out_occupancy needs max_players_per_member, scaling disabled", name);
+    }
+    if (scaleOut > 0 && scaleIn >= scaleOut) {
+      // the gap between the thresholds is what keeps scaling from flapping
+      logger.warn("Group '{}': scale_in_occupancy must be below scale_out_occupancy, using {}", name, scaleOut / 2);
+      scaleIn = scaleOut / 2;
+    }
+    return new GroupSettings(name, members,
+      Math.max(0, intOf(tbl, "warm_spares", 1)),
+      maxPlayers,
+      routing,
+      scaleOut,
+      scaleIn,
+      Math.max(0, intOf(tbl, "min_online", 1)),
+      Math.max(0, intOf(tbl, "scale_cooldown_seconds", 60)),
+      Math.max(0, intOf(tbl, "drain_timeout_seconds", 300)));
+  }
+
+  private static LocalProcessSettings localSettings(String server, TomlTable tbl) {
+    TomlArray cmd = tbl.getArray("local.command");
+    if (cmd == null || cmd.isEmpty()) {
+      throw new IllegalArgumentException("driver \"local\" needs local.command");
+    }
+    List<String> command = new ArrayList<>();
+    for (int i = 0; i < cmd.size(); i++) {
+      command.add(cmd.getString(i));
+    }
+    String readyPattern = tbl.getString("local.ready_pattern", () -> LocalProcessSettings.DEFAULT_READY_PATTERN);
+    try {
+      Pattern.compile(readyPattern);
+    } catch (PatternSyntaxException ex) {
+      throw new IllegalArgumentException("local.ready_pattern is not a valid regex: " + ex.getDescription());
+    }
+    return new LocalProcessSettings(
+      List.copyOf(command),
+      tbl.getString("local.directory", () -> "servers/" + server),
+      readyPattern,
+      tbl.getString("local.stop_command", () -> "stop"),
+      intOf(tbl, "local.stop_timeout_seconds", 60));
+  }
+
+  private static int intOf(TomlTable t, String key, int def) {
+    Long v = t.getLong(key);
+    return (v == null) ? def : v.intValue();
+  }
+}
@@ -0,0 +1,88 @@
+package com.lazymcvelocitycrafty.config;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches config.toml and reloads PluginConfig when it changes. Editors usually write a file in
+ * several steps, so events are debounced before the reload runs.
+ */
+public class ConfigWatcher {
+
+  private static final long DEBOUNCE_MILLIS = 500L;
+
+  private final PluginConfig config;
+  private final Logger logger;
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "lazymc-config-watcher");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private WatchService watchService;
+  private ScheduledFuture<?> pendingReload;
+
+  public ConfigWatcher(PluginConfig config, Logger logger) {
+    this.config = config;
+    this.logger = logger;
+  }
+
+  public void start() throws IOException {
+    Path file = config.getConfigFile();
+    watchService = FileSystems.getDefault().newWatchService();
+    file.getParent().register(watchService,
+      StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+
+    Thread loop = new Thread(() -> {
+      try {
+        while (true) {
+          WatchKey key = watchService.take();
+          for (WatchEvent<?> ev : key.pollEvents()) {
+            if (file.getFileName().equals(ev.context())) {
+              scheduleReload();
+            }
+          }
+          if (!key.reset()) return;
+        }
+      } catch (InterruptedException | ClosedWatchServiceException ex) {
+        // closed
+      }
+    }, "lazymc-config-watch-loop");
+    loop.setDaemon(true);
+    loop.start();
+  }
+
+  private synchronized void scheduleReload() {
+    if (pendingReload != null) {
+      pendingReload.cancel(false);
+    }
+    pendingReload = executor.schedule(() -> {
+      try {
+        config.reload();
+      } catch (Exception ex) {
+        logger.warn("config.toml changed but could not be reloaded, keeping previous config: {}", ex.getMessage());
+      }
+    }, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  public void close() {
+    executor.shutdownNow();
+    try {
+      if (watchService != null) watchService.close();
+    } catch (IOException ignored) {
+      // shutting down
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package com.lazymcvelocitycrafty.config;
+
+/**
+ * Typed, immutable settings of one Crafty instance: the top-level crafty.* host ("default") or a
+ * [crafty_hosts.<id>] table.
+ */
+public record CraftyHostSettings(
+  String id,
+  String baseUrl,
+  String apiKey,
+  int maxConcurrentRequests,
+  int maxConcurrentBootCost
+) {
+  public static final String DEFAULT_ID = "default";
+}
@@ -0,0 +1,36 @@
+package com.lazymcvelocitycrafty.config;
+
+import java.util.List;
+
+/**
+ * Typed, immutable settings of one [groups.<name>] table: a pool of interchangeable managed
+ * servers that players reach through the group name.
+ */
+public record GroupSettings(
+  String name,
+  // managed server names, in preference order
+  List<String> members,
+  int warmSpares,
+  // 0 = no limit
+  int maxPlayersPerMember,
+  String routing,
+  // elastic scaling; off unless scaleOutOccupancy > 0 and maxPlayersPerMember > 0
+  double scaleOutOccupancy,
+  double scaleInOccupancy,
+  int minOnline,
+  int scaleCooldownSeconds,
+  int drainTimeoutSeconds
+) {
+  /**
+   * Fill the fullest member that has room, keeping empty members free as spares.
+   */
+  public static final String ROUTING_PACK = "pack";
+  /**
+   * Spread players over the least-loaded member.
+   */
+  public static final String ROUTING_LEAST_LOADED = "least_loaded";
+
+  public boolean isElastic() {
+    return scaleOutOccupancy > 0 && maxPlayersPerMember > 0;
+  }
+}
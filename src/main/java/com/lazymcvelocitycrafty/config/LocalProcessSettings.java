@@ -0,0 +1,21 @@
+package com.lazymcvelocitycrafty.config;
+
+import java.util.List;
+
+/**
+ * Typed, immutable settings of a server run by the local driver: the [servers.<name>] local.* keys.
+ */
+public record LocalProcessSettings(
+  List<String> command,
+  String directory,
+  String readyPattern,
+  String stopCommand,
+  int stopTimeoutSeconds
+) {
+  /**
+   * Boot slots and shutdown staggering for all locally run servers share this host id.
+   */
+  public static final String HOST_ID = "local";
+  // vanilla/Paper/Fabric all log "Done (12.345s)! For help, type "help"" once they accept players
+  public static final String DEFAULT_READY_PATTERN = "Done \\(";
+}
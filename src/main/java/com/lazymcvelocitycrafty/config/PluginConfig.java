@@ -7,7 +7,12 @@ import org.slf4j.Logger;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Minimal representation of plugin config loaded from config.toml
@@ -15,25 +20,50 @@ import java.util.*;
  * Expected keys:
  *   crafty.host
  *   crafty.api_key
+ *   crafty.request_timeout_seconds
+ *   crafty.max_retries
+ *   crafty.max_concurrent_requests
+ *   crafty.breaker_failure_threshold
+ *   crafty.breaker_open_seconds
+ *   crafty.status_poll
+ *   crafty.status_poll_interval_seconds
+ *   crafty.max_concurrent_boot_cost
+ *   [crafty_hosts.<id>] { host = "...", api_key = "...", max_concurrent_requests, max_concurrent_boot_cost }
  *   lobby_server
  *   max_start_wait_seconds
  *   check_interval_seconds
+ *   probe_interval_seconds
+ *   probe_timeout_millis
+ *   probe_fast_interval_millis
+ *   probe_max_interval_millis
+ *   presence_reconcile_seconds
+ *   progress_interval_seconds
+ *   activity_heartbeat_channel
  *   handle_fallback_on_forced_off
- *   [servers.<name>] { uuid = "...", idle_timeout_seconds = 300 }
+ *   watch_config
+ *   metrics.enabled, metrics.bind_address, metrics.port
+ *   prewarm.enabled, prewarm.lead_minutes, prewarm.min_expected_joins, prewarm.half_life_days
+ *   shutdown.stagger_seconds, shutdown.max_concurrent_per_host
+ *   local.max_concurrent_boot_cost
+ *   ping.enabled, ping.sleeping_motd, ping.starting_motd, ping.refresh_seconds
+ *   [servers.<name>] { uuid = "...", idle_timeout_seconds = 300, hold_max_boot_seconds = 0, boot_cost = 1,
+ *                      crafty_host = "default", driver = "crafty" | "local",
+ *                      local.command = [...], local.directory, local.ready_pattern, local.stop_command,
+ *                      local.stop_timeout_seconds }
+ *   [groups.<name>] { members = ["..."], warm_spares = 1, max_players_per_member = 0,
+ *                     routing = "pack" | "least_loaded", scale_out_occupancy = 0.0, scale_in_occupancy = 0.3,
+ *                     min_online = 1, scale_cooldown_seconds = 60, drain_timeout_seconds = 300 }
+ *
+ * Values live in an immutable ConfigSnapshot that {@link #reload()} swaps atomically; getters
+ * always read the current snapshot, per-server values from a typed ServerSettings.
  */
 public class PluginConfig {
 
   private final Path dataDirectory;
   private final Logger logger;
-  
-  private String craftyHost;
-  private String craftyApiKey;
-  private String lobbyServer;
-  private int maxStartWaitSeconds = 120;
-  private int checkIntervalSeconds = 5;
-  private boolean handleFallbackOnForcedOff = true;
-  // serverName -> (uuid, idle_timeout_seconds)
-  private final Map<String, Map<String, Object>> servers = new HashMap<>();
+  private final List<Consumer<ConfigDiff>> reloadListeners = new CopyOnWriteArrayList<>();
+
+  private volatile ConfigSnapshot snapshot;
 
   private PluginConfig(Path dataDirectory, Logger logger) {
     this.dataDirectory = dataDirectory;
@@ -46,64 +76,177 @@ public class PluginConfig {
    */
   public static PluginConfig load(Path dataDirectory, Logger logger) throws IOException {
     PluginConfig cfg = new PluginConfig(dataDirectory, logger);
-    Path cfgPath = dataDirectory.resolve("config.toml");
-    if (!Files.exists(cfgPath)) {
-      throw new IOException("config.toml not found: " + cfgPath);
+    cfg.snapshot = cfg.parse();
+    logger.info("Loaded config: {} servers", cfg.snapshot.servers.size());
+    return cfg;
+  }
+
+  /**
+   * Re-read config.toml and swap in the new snapshot. On a parse failure the current snapshot
+   * stays in place and the exception is rethrown. Listeners get the diff after the swap.
+   */
+  public synchronized ConfigDiff reload() throws IOException {
+    ConfigSnapshot next = parse();
+    ConfigDiff diff = snapshot.diff(next);
+    snapshot = next;
+    logger.info("Reloaded config: {} servers (+{} -{} ~{})",
+      next.servers.size(), diff.added().size(), diff.removed().size(), diff.changed().size());
+    if (diff.restartRequired()) {
+      logger.warn("Some changed settings (Crafty client, poll rates, pre-warm) only take effect after a proxy restart");
     }
-    String raw = Files.readString(cfgPath);
-    TomlParseResult res = Toml.parse(raw);
-
-    // Crafty
-    cfg.craftyHost = res.getString("crafty.host", "https://127.0.0.1:8443");
-    cfg.craftyApiKey = res.getString("crafty.api_key", "");
-    // Other
-    cfg.lobbyServer = res.getString("lobby_server", "lobby");
-    cfg.maxStartWaitSeconds = res.getLong("max_start_wait_seconds", (long) cfg.maxStartWaitSeconds).intValue();
-    cfg.checkIntervalSeconds = res.getLong("check_interval_seconds', (long) cfg.checkIntervalSeconds).intValue();
-    cfg.handleFallbackOnForcedOff = res.getBoolean("handle_fallback_on_forced_off", true);
-
-    // Per-server tables: toml library returns table for "servers"
-    if (res.contains("servers")) {
-      var serversTable = res.getTable("servers");
-      for (String key : serversTable.keySet()) {
-        try {
-          var tbl = serversTable.getTable(key);
-          if (tbl != null) {
-            Map<String, Object> serverCfg = new HashMap<>();
-            String uuid = tbl.getString("uuid");
-            long idle = tbl.getLong("idle_timeout_seconds", 300L);
-            serverCfg.put("uuid", uuid);
-            serverCfg.put("idle_timeout_seconds", (int) idle);
-            cfg.servers.put(key, serverCfg);
-          }
-        } catch (Exception ex) {
-          logger.warn("Failed to read server config for '{}': {}", key, ex.getMessage());
-        }
+    for (Consumer<ConfigDiff> l : reloadListeners) {
+      try {
+        l.accept(diff);
+      } catch (Exception ex) {
+        logger.warn("Config reload listener failed: {}", ex.getMessage());
       }
     }
+    return diff;
+  }
 
-    logger.info("Loaded config: {} servers", cfg.servers.size());
-    return cfg;
+  public void addReloadListener(Consumer<ConfigDiff> listener) {
+    reloadListeners.add(listener);
+  }
+
+  public Path getConfigFile() {
+    return dataDirectory.resolve("config.toml");
+  }
+
+  private ConfigSnapshot parse() throws IOException {
+    Path cfgPath = getConfigFile();
+    if (!Files.exists(cfgPath)) {
+      throw new IOException("config.toml not found: " + cfgPath);
+    }
+    TomlParseResult res = Toml.parse(Files.readString(cfgPath));
+    if (res.hasErrors()) {
+      throw new IOException("config.toml is invalid: " + res.errors().get(0));
+    }
+    return new ConfigSnapshot(res, logger);
   }
       
   // getters
-  public String getCraftyHost() { return craftyHost; }
-  public String getCraftyApiKey() { return craftyApiKey; }
-  public String getLobbyServer() { return lobbyServer; }
-  public int getMaxStartWaitSeconds() { return maxStartWaitSeconds; }
-  public int getCheckIntervalSeconds() { return checkIntervalSeconds; }
-  public boolean isHandleFallbackOnForcedOff() { return handleFallbackOnForcedOff; }
+  public String getCraftyHost() { return snapshot.craftyHost; }
+  public String getCraftyApiKey() { return snapshot.craftyApiKey; }
+  public int getCraftyRequestTimeoutSeconds() { return snapshot.craftyRequestTimeoutSeconds; }
+  public int getCraftyMaxRetries() { return snapshot.craftyMaxRetries; }
+  public int getCraftyMaxConcurrentRequests() { return snapshot.craftyMaxConcurrentRequests; }
+  public int getCraftyBreakerFailureThreshold() { return snapshot.craftyBreakerFailureThreshold; }
+  public int getCraftyBreakerOpenSeconds() { return snapshot.craftyBreakerOpenSeconds; }
+  public boolean isCraftyStatusPoll() { return snapshot.craftyStatusPoll; }
+  public int getCraftyStatusPollIntervalSeconds() { return snapshot.craftyStatusPollIntervalSeconds; }
+  public int getCraftyMaxConcurrentBootCost() { return snapshot.craftyMaxConcurrentBootCost; }
+  public String getLobbyServer() { return snapshot.lobbyServer; }
+  public int getMaxStartWaitSeconds() { return snapshot.maxStartWaitSeconds; }
+  public int getCheckIntervalSeconds() { return snapshot.checkIntervalSeconds; }
+  public int getProbeIntervalSeconds() { return snapshot.probeIntervalSeconds; }
+  public int getProbeTimeoutMillis() { return snapshot.probeTimeoutMillis; }
+  public int getProbeFastIntervalMillis() { return snapshot.probeFastIntervalMillis; }
+  public int getProbeMaxIntervalMillis() { return snapshot.probeMaxIntervalMillis; }
+  public int getPresenceReconcileSeconds() { return snapshot.presenceReconcileSeconds; }
+  public int getProgressIntervalSeconds() { return snapshot.progressIntervalSeconds; }
+  public String getActivityHeartbeatChannel() { return snapshot.activityHeartbeatChannel; }
+  public boolean isHandleFallbackOnForcedOff() { return snapshot.handleFallbackOnForcedOff; }
+  public boolean isWatchConfig() { return snapshot.watchConfig; }
+  public boolean isMetricsEnabled() { return snapshot.metricsEnabled; }
+  public String getMetricsBindAddress() { return snapshot.metricsBindAddress; }
+  public int getMetricsPort() { return snapshot.metricsPort; }
+  public boolean isPrewarmEnabled() { return snapshot.prewarmEnabled; }
+  public int getPrewarmLeadMinutes() { return snapshot.prewarmLeadMinutes; }
+  public double getPrewarmMinExpectedJoins() { return snapshot.prewarmMinExpectedJoins; }
+  public double getPrewarmHalfLifeDays() { return snapshot.prewarmHalfLifeDays; }
+  public int getShutdownStaggerSeconds() { return snapshot.shutdownStaggerSeconds; }
+  public int getShutdownMaxConcurrentPerHost() { return snapshot.shutdownMaxConcurrentPerHost; }
+  public int getLocalMaxConcurrentBootCost() { return snapshot.localMaxConcurrentBootCost; }
+  public boolean isPingEnabled() { return snapshot.pingEnabled; }
+  public String getPingSleepingMotd() { return snapshot.pingSleepingMotd; }
+  public String getPingStartingMotd() { return snapshot.pingStartingMotd; }
+  public int getPingRefreshSeconds() { return snapshot.pingRefreshSeconds; }
+
+  public Set<String> getManagedServers() { return snapshot.servers.keySet(); }
+
+  /**
+   * All configured Crafty instances by id, including "default" (the top-level crafty.* keys).
+   */
+  public Map<String, CraftyHostSettings> getCraftyHosts() { return snapshot.craftyHosts; }
 
-  public Set<String> getManagedServers() { return Collections.unmodifiableSet(servers.keySet()): }
+  /**
+   * Settings of a Crafty instance; the default host for unknown ids.
+   */
+  public CraftyHostSettings getCraftyHostSettings(String hostId) {
+    CraftyHostSettings h = snapshot.craftyHosts.get(hostId);
+    return (h == null) ? snapshot.craftyHosts.get(CraftyHostSettings.DEFAULT_ID) : h;
+  }
+
+  /**
+   * Id of the Crafty instance that runs this server ("default" unless crafty_host is set).
+   */
+  public String getCraftyHostId(String serverName) {
+    ServerSettings s = snapshot.servers.get(serverName);
+    return (s == null) ? CraftyHostSettings.DEFAULT_ID : s.craftyHost();
+  }
+
+  /**
+   * Host a server's boots and idle stops are queued on: its Crafty host, or "local" for servers
+   * run by the local driver.
+   */
+  public String getControlHostId(String serverName) {
+    ServerSettings s = snapshot.servers.get(serverName);
+    if (s == null) return CraftyHostSettings.DEFAULT_ID;
+    return (s.local() != null) ? LocalProcessSettings.HOST_ID : s.craftyHost();
+  }
+
+  /**
+   * Boot budget of a host from {@link #getControlHostId}.
+   */
+  public int getMaxConcurrentBootCost(String hostId) {
+    if (LocalProcessSettings.HOST_ID.equals(hostId)) return snapshot.localMaxConcurrentBootCost;
+    return getCraftyHostSettings(hostId).maxConcurrentBootCost();
+  }
+
+  public Map<String, GroupSettings> getGroups() { return snapshot.groups; }
+
+  /**
+   * Settings of a server group, or null if there is no group of that name.
+   */
+  public GroupSettings getGroup(String groupName) { return snapshot.groups.get(groupName); }
+
+  /**
+   * Name of the group a server belongs to, or null.
+   */
+  public String getGroupOf(String serverName) { return snapshot.groupOf.get(serverName); }
+
+  /**
+   * Typed settings for a server; defaults for names that are not managed.
+   */
+  public ServerSettings getServer(String serverName) {
+    ServerSettings s = snapshot.servers.get(serverName);
+    return (s == null) ? ServerSettings.unmanaged(serverName) : s;
+  }
 
   public Optional<String> getServerUuid(String serverName) {
-    var m = servers.get(serverName);
-    return (m == null) ? Optional.empty() : Optional.ofNullable((String) m.get("uuid"));
+    ServerSettings s = snapshot.servers.get(serverName);
+    return (s == null) ? Optional.empty() : Optional.ofNullable(s.uuid());
   }
 
   public int getIdleTimeoutSeconds(String serverName) {
-    var m = servers.get(serverName);
-    if (m == null) return 300;
-    return (int) m.getOrDefault("idle_timeout_seconds", 300);
+    ServerSettings s = snapshot.servers.get(serverName);
+    return (s == null) ? ServerSettings.DEFAULT_IDLE_TIMEOUT_SECONDS : s.idleTimeoutSeconds();
+  }
+
+  /**
+   * Connects are held (instead of bounced to the lobby) when the server is expected to finish
+   * booting within this many seconds. 0 disables holding.
+   */
+  public int getHoldMaxBootSeconds(String serverName) {
+    ServerSettings s = snapshot.servers.get(serverName);
+    return (s == null) ? 0 : s.holdMaxBootSeconds();
+  }
+
+  /**
+   * Relative weight of this server's boot against crafty.max_concurrent_boot_cost.
+   */
+  public int getBootCost(String serverName) {
+    ServerSettings s = snapshot.servers.get(serverName);
+    return (s == null) ? 1 : s.bootCost();
   }
 }
@@ -0,0 +1,28 @@
+package com.lazymcvelocitycrafty.config;
+
+/**
+ * Typed, immutable settings of one [servers.<name>] table.
+ */
+public record ServerSettings(
+  String name,
+  String uuid,
+  int idleTimeoutSeconds,
+  int holdMaxBootSeconds,
+  int bootCost,
+  String craftyHost,
+  String driver,
+  // null unless driver is "local"
+  LocalProcessSettings local
+) {
+  public static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 300;
+  public static final String DRIVER_CRAFTY = "crafty";
+  public static final String DRIVER_LOCAL = "local";
+
+  /**
+   * Settings used for names that are not configured.
+   */
+  static ServerSettings unmanaged(String name) {
+    return new ServerSettings(name, null, DEFAULT_IDLE_TIMEOUT_SECONDS, 0, 1, CraftyHostSettings.DEFAULT_ID,
+      DRIVER_CRAFTY, null);
+  }
+}
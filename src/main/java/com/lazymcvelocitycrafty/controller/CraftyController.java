@@ -0,0 +1,51 @@
+package com.lazymcvelocitycrafty.controller;
+
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.config.ServerSettings;
+import com.lazymcvelocitycrafty.crafty.CraftyClientPool;
+import org.slf4j.Logger;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Start/stop through the Crafty v2 API of the server's crafty_host.
+ */
+public class CraftyController implements ServerController {
+
+  private final CraftyClientPool crafty;
+  private final PluginConfig config;
+  private final Logger logger;
+
+  public CraftyController(CraftyClientPool crafty, PluginConfig config, Logger logger) {
+    this.crafty = crafty;
+    this.config = config;
+    this.logger = logger;
+  }
+
+  @Override
+  public String getId() {
+    return ServerSettings.DRIVER_CRAFTY;
+  }
+
+  @Override
+  public CompletableFuture<Void> start(String server) {
+    return action(server, "start_server", "start");
+  }
+
+  @Override
+  public CompletableFuture<Void> stop(String server) {
+    return action(server, "stop_server", "stop");
+  }
+
+  private CompletableFuture<Void> action(String server, String action, String verb) {
+    Optional<String> uuidOpt = config.getServerUuid(server);
+    if (uuidOpt.isEmpty()) {
+      return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown server: " + server));
+    }
+
+    logger.info("Sending Crafty {} request for {}", verb, server);
+    return crafty.forServer(server).serverAction(uuidOpt.get(), action)
+      .thenAccept(resp -> logger.info("Crafty accepted {} for {} ({} ms)", verb, server, resp.getLatencyMillis()));
+  }
+}
@@ -0,0 +1,223 @@
+package com.lazymcvelocitycrafty.controller;
+
+import com.lazymcvelocitycrafty.config.LocalProcessSettings;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.config.ServerSettings;
+import com.lazymcvelocitycrafty.server.BackendStateRegistry;
+import com.lazymcvelocitycrafty.server.ServerState;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Runs backends as child processes of the proxy, without Crafty in between.
+ *
+ * A start launches local.command in local.directory; the server is reported ONLINE as soon as a
+ * console line matches local.ready_pattern, and OFFLINE when the process exits. A stop writes
+ * local.stop_command to the console and destroys the process if it is still running after
+ * local.stop_timeout_seconds. Only processes started by this proxy can be stopped.
+ *
+ * Children do not die with the proxy on their own. A clean proxy shutdown ({@link #shutdown})
+ * sends each one its stop command; if the JVM exits any other way a shutdown hook terminates
+ * whatever is still running, and if it is killed outright they keep running unmanaged.
+ */
+public class LocalProcessController implements ServerController {
+
+  private static final long KILL_GRACE_SECONDS = 10L;
+  private static final long SHUTDOWN_WAIT_MILLIS = 10_000L;
+
+  private final PluginConfig config;
+  private final BackendStateRegistry states;
+  private final ScheduledExecutorService scheduler;
+  private final Logger logger;
+  private final ConcurrentMap<String, LocalProcess> processes = new ConcurrentHashMap<>();
+  // process spawns can stall on a slow disk; keep them off the shared poller
+  private final ExecutorService launcher = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "lazymc-local-launcher");
+    t.setDaemon(true);
+    return t;
+  });
+  private final Thread reaper = new Thread(this::destroy, "lazymc-local-reaper");
+  private final AtomicBoolean reaperRegistered = new AtomicBoolean();
+
+  private static final class LocalProcess {
+    final Process process;
+    final Writer console;
+    final LocalProcessSettings settings;
+    volatile boolean ready;
+
+    LocalProcess(Process process, LocalProcessSettings settings) {
+      this.process = process;
+      this.console = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+      this.settings = settings;
+    }
+  }
+
+  public LocalProcessController(PluginConfig config, BackendStateRegistry states, ScheduledExecutorService scheduler,
+                                Logger logger) {
+    this.config = config;
+    this.states = states;
+    this.scheduler = scheduler;
+    this.logger = logger;
+  }
+
+  @Override
+  public String getId() {
+    return ServerSettings.DRIVER_LOCAL;
+  }
+
+  /**
+   * Launches the process off the caller's thread. A server whose process is still alive is not
+   * launched twice.
+   */
+  @Override
+  public CompletableFuture<Void> start(String server) {
+    LocalProcess running = processes.get(server);
+    if (running != null && running.process.isAlive()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    LocalProcessSettings settings = config.getServer(server).local();
+    if (settings == null) {
+      return CompletableFuture.failedFuture(new IllegalArgumentException(server + " is not configured for the local driver"));
+    }
+    return CompletableFuture.runAsync(() -> launch(server, settings), launcher);
+  }
+
+  @Override
+  public CompletableFuture<Void> stop(String server) {
+    LocalProcess lp = processes.get(server);
+    if (lp == null || !lp.process.isAlive()) {
+      if (states.isOnline(server)) {
+        return CompletableFuture.failedFuture(new IllegalStateException(server + " was not started by this proxy, cannot stop it"));
+      }
+      return CompletableFuture.completedFuture(null);
+    }
+    logger.info("Stopping local server {} (pid {})", server, lp.process.pid());
+    sendStop(lp);
+    long timeout = Math.max(1, lp.settings.stopTimeoutSeconds());
+    scheduler.schedule(() -> escalate(server, lp), timeout, TimeUnit.SECONDS);
+    return CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * Asks every running process to stop and waits a few seconds for them; stragglers finish
+   * shutting down on their own.
+   */
+  @Override
+  public void shutdown() {
+    launcher.shutdownNow();
+    List<LocalProcess> running = new ArrayList<>(processes.values());
+    if (running.isEmpty()) return;
+    logger.info("Stopping {} local servers", running.size());
+    for (LocalProcess lp : running) {
+      sendStop(lp);
+    }
+    long deadline = System.currentTimeMillis() + SHUTDOWN_WAIT_MILLIS;
+    for (LocalProcess lp : running) {
+      try {
+        lp.process.waitFor(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Terminates every process still running, without waiting. Runs from the JVM shutdown hook.
+   */
+  public void destroy() {
+    for (LocalProcess lp : processes.values()) {
+      if (lp.process.isAlive()) lp.process.destroy();
+    }
+  }
+
+  private void launch(String server, LocalProcessSettings settings) {
+    ProcessBuilder pb = new ProcessBuilder(settings.command())
+      .directory(new File(settings.directory()))
+      .redirectErrorStream(true);
+    Process process;
+    try {
+      process = pb.start();
+    } catch (IOException ex) {
+      throw new IllegalStateException("Failed to launch " + server + ": " + ex.getMessage(), ex);
+    }
+    LocalProcess lp = new LocalProcess(process, settings);
+    processes.put(server, lp);
+    if (reaperRegistered.compareAndSet(false, true)) {
+      Runtime.getRuntime().addShutdownHook(reaper);
+    }
+    logger.info("Launched local server {} (pid {}) in {}", server, process.pid(), settings.directory());
+
+    Thread reader = new Thread(() -> readConsole(server, lp), "lazymc-local-" + server);
+    reader.setDaemon(true);
+    reader.start();
+    process.onExit().thenRun(() -> exited(server, lp));
+  }
+
+  // must keep draining, or the server blocks once the pipe buffer is full
+  private void readConsole(String server, LocalProcess lp) {
+    Pattern ready = Pattern.compile(lp.settings.readyPattern());
+    try (BufferedReader r = new BufferedReader(new InputStreamReader(lp.process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = r.readLine()) != null) {
+        logger.debug("[{}] {}", server, line);
+        if (!lp.ready && ready.matcher(line).find()) {
+          lp.ready = true;
+          logger.info("Local server {} is ready", server);
+          states.observe(server, ServerState.ONLINE);
+        }
+      }
+    } catch (IOException ex) {
+      // process exited or its console was closed
+    }
+  }
+
+  private void exited(String server, LocalProcess lp) {
+    // a newer process may already have replaced this one
+    if (!processes.remove(server, lp)) return;
+    logger.info("Local server {} exited with code {}", server, lp.process.exitValue());
+    states.transition(server, ServerState.OFFLINE);
+  }
+
+  private void sendStop(LocalProcess lp) {
+    try {
+      synchronized (lp.console) {
+        lp.console.write(lp.settings.stopCommand() + "\n");
+        lp.console.flush();
+      }
+    } catch (IOException ex) {
+      // console already closed; fall back to a signal
+      lp.process.destroy();
+    }
+  }
+
+  private void escalate(String server, LocalProcess lp) {
+    if (!lp.process.isAlive()) return;
+    logger.warn("Local server {} still running {}s after stop, terminating it", server, lp.settings.stopTimeoutSeconds());
+    lp.process.destroy();
+    scheduler.schedule(() -> {
+      if (lp.process.isAlive()) {
+        logger.warn("Local server {} ignored termination, killing it", server);
+        lp.process.destroyForcibly();
+      }
+    }, KILL_GRACE_SECONDS, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,30 @@
+package com.lazymcvelocitycrafty.controller;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Starts and stops backend servers for ServerManager. Each [servers.<name>] picks one with its
+ * driver key.
+ *
+ * Both calls complete once the request was accepted, not once the server is up or down; the
+ * cached state is then confirmed by probes, the Crafty status poller or the driver itself.
+ * Coalescing, ordering and boot slots are handled by ServerManager, so implementations only
+ * send the request.
+ */
+public interface ServerController {
+
+  /**
+   * The driver value that selects this controller.
+   */
+  String getId();
+
+  CompletableFuture<Void> start(String server);
+
+  CompletableFuture<Void> stop(String server);
+
+  /**
+   * Called once when the proxy shuts down.
+   */
+  default void shutdown() {
+  }
+}
@@ -0,0 +1,62 @@
+package com.lazymcvelocitycrafty.crafty;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counting semaphore: acquire() hands back a future that completes once a permit is
+ * free, so callers queue without parking a thread.
+ *
+ * Priority callers are served before queued normal ones, and with more than one permit the last
+ * one is kept for them, so a backlog of normal calls never holds every slot.
+ */
+class AsyncLimiter {
+
+  private final int permits;
+  // permits normal callers may hold at once
+  private final int normalPermits;
+  private final Deque<CompletableFuture<Void>> waitingPriority = new ArrayDeque<>();
+  private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+  private int inUse;
+
+  AsyncLimiter(int permits) {
+    this.permits = Math.max(1, permits);
+    this.normalPermits = (this.permits > 1) ? this.permits - 1 : 1;
+  }
+
+  CompletableFuture<Void> acquire() {
+    return acquire(false);
+  }
+
+  CompletableFuture<Void> acquire(boolean priority) {
+    synchronized (this) {
+      if (inUse < (priority ? permits : normalPermits) && (priority || waitingPriority.isEmpty())) {
+        inUse++;
+        return CompletableFuture.completedFuture(null);
+      }
+      CompletableFuture<Void> f = new CompletableFuture<>();
+      (priority ? waitingPriority : waiting).addLast(f);
+      return f;
+    }
+  }
+
+  void release() {
+    CompletableFuture<Void> next;
+    synchronized (this) {
+      next = waitingPriority.pollFirst();
+      if (next == null && inUse <= normalPermits) {
+        next = waiting.pollFirst();
+      }
+      if (next == null) {
+        inUse--;
+        return;
+      }
+    }
+    // permit passes straight to the next waiter; complete outside the lock
+    next.complete(null);
+  }
+
+  synchronized int inUse() { return inUse; }
+  synchronized int queued() { return waitingPriority.size() + waiting.size(); }
+}
@@ -0,0 +1,65 @@
+package com.lazymcvelocitycrafty.crafty;
+
+/**
+ * Consecutive-failure circuit breaker for one Crafty host.
+ *
+ * CLOSED: calls pass. After failureThreshold consecutive failures it goes OPEN and rejects calls
+ * for openMillis. Then HALF_OPEN lets a single trial call through: success closes it again,
+ * failure re-opens it.
+ */
+public class CircuitBreaker {
+
+  public enum State { CLOSED, OPEN, HALF_OPEN }
+
+  private final int failureThreshold;
+  private final long openMillis;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openedAt;
+  private boolean trialInFlight;
+
+  public CircuitBreaker(int failureThreshold, long openMillis) {
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openMillis = openMillis;
+  }
+
+  /**
+   * Whether a call may be attempted now. In HALF_OPEN only the first caller gets through.
+   */
+  public synchronized boolean tryAcquire() {
+    if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+      state = State.HALF_OPEN;
+      trialInFlight = false;
+    }
+    switch (state) {
+      case CLOSED:
+        return true;
+      case HALF_OPEN:
+        if (trialInFlight) return false;
+        trialInFlight = true;
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    consecutiveFailures = 0;
+    trialInFlight = false;
+    state = State.CLOSED;
+  }
+
+  public synchronized void onFailure() {
+    trialInFlight = false;
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = System.currentTimeMillis();
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+}
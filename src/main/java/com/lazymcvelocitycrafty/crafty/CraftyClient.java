@@ -0,0 +1,175 @@
+package com.lazymcvelocitycrafty.crafty;
+
+import com.lazymcvelocitycrafty.config.CraftyHostSettings;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crafty Controller v2 API client for one host.
+ *
+ * One shared HttpClient (keep-alive connections are reused), at most max_concurrent_requests
+ * calls in flight, bounded retries with full jitter for idempotent calls, and a circuit breaker
+ * that fails fast while the host keeps erroring. Only transport errors, 429 and 5xx count against
+ * the breaker; a 403 or 404 is the host answering. Server actions go ahead of queued reads and
+ * one permit is kept for them, so status polling cannot starve a start or stop. The base URL is plain config, so the client can
+ * be pointed at a local stub server. CraftyClientPool holds one per configured host, so a slow
+ * or failing instance only affects the servers it runs.
+ */
+public class CraftyClient {
+
+  private static final long RETRY_BASE_DELAY_MILLIS = 250L;
+
+  private final String hostId;
+  private final String baseUrl;
+  private final String authorization;
+  private final Duration requestTimeout;
+  private final int maxRetries;
+  private final Logger logger;
+
+  private final HttpClient http;
+  private final AsyncLimiter limiter;
+  private final CircuitBreaker breaker;
+  private final CraftyStats stats = new CraftyStats();
+  private final Metrics.HistogramFamily latency;
+
+  public CraftyClient(CraftyHostSettings host, PluginConfig config, Metrics.HistogramFamily latency, Logger logger) {
+    this.hostId = host.id();
+    this.baseUrl = trimSlash(host.baseUrl());
+    this.authorization = bearerHeader(host.apiKey());
+    this.requestTimeout = Duration.ofSeconds(Math.max(1, config.getCraftyRequestTimeoutSeconds()));
+    this.maxRetries = Math.max(0, config.getCraftyMaxRetries());
+    this.logger = logger;
+    this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    this.limiter = new AsyncLimiter(host.maxConcurrentRequests());
+    this.breaker = new CircuitBreaker(config.getCraftyBreakerFailureThreshold(),
+      config.getCraftyBreakerOpenSeconds() * 1000L);
+    this.latency = latency;
+  }
+
+  /**
+   * POST /api/v2/servers/{uuid}/action/{action}. Only start and stop are retried: they are safe
+   * to repeat (Crafty ignores a start for a running server), other actions are not.
+   */
+  public CompletableFuture<CraftyResponse> serverAction(String serverUuid, String action) {
+    HttpRequest req = newRequest("/api/v2/servers/" + serverUuid + "/action/" + action)
+      .header("Content-Type", "application/json")
+      .POST(HttpRequest.BodyPublishers.ofString("{}"))
+      .build();
+    boolean idempotent = "start_server".equals(action) || "stop_server".equals(action);
+    return execute(action, req, idempotent, true);
+  }
+
+  /**
+   * GET an API path (e.g. "/api/v2/servers/{uuid}/stats").
+   */
+  public CompletableFuture<CraftyResponse> get(String statsKey, String path) {
+    return execute(statsKey, newRequest(path).GET().build(), true, false);
+  }
+
+  public CraftyStats getStats() { return stats; }
+  public CircuitBreaker.State getBreakerState() { return breaker.getState(); }
+  public int getInFlight() { return limiter.inUse(); }
+  public int getQueued() { return limiter.queued(); }
+  public String getHostId() { return hostId; }
+  public String getBaseUrl() { return baseUrl; }
+
+  private HttpRequest.Builder newRequest(String path) {
+    return HttpRequest.newBuilder()
+      .uri(URI.create(baseUrl + path))
+      .timeout(requestTimeout)
+      .header("Authorization", authorization);
+  }
+
+  private CompletableFuture<CraftyResponse> execute(String action, HttpRequest req, boolean idempotent, boolean priority) {
+    CompletableFuture<CraftyResponse> result = new CompletableFuture<>();
+    attempt(action, req, priority, idempotent ? maxRetries : 0, 0, result);
+    return result;
+  }
+
+  private void attempt(String action, HttpRequest req, boolean priority, int retriesLeft, int attemptNo,
+                       CompletableFuture<CraftyResponse> result) {
+    if (!breaker.tryAcquire()) {
+      stats.recordRejected();
+      result.completeExceptionally(new CraftyException("Crafty circuit open for " + baseUrl + ", not sending " + action, -1));
+      return;
+    }
+
+    limiter.acquire(priority).thenCompose(v -> {
+      long startNanos = System.nanoTime();
+      return http.sendAsync(req, HttpResponse.BodyHandlers.ofString())
+        .handle((resp, ex) -> {
+          limiter.release();
+          long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+          int status = (resp == null) ? -1 : resp.statusCode();
+          boolean ok = ex == null && status / 100 == 2;
+          stats.record(action, status, millis, ok);
+          latency.labels(hostId, action, Integer.toString(status)).observe(millis / 1000.0);
+          if (ok) {
+            breaker.onSuccess();
+            return new CraftyResponse(status, resp.body(), millis);
+          }
+          if (ex != null || isHostFault(status)) {
+            breaker.onFailure();
+          } else {
+            // the host is up and answered; a bad uuid or key is not a reason to cut it off
+            breaker.onSuccess();
+          }
+          if (ex != null) {
+            Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+            throw new CompletionException(cause);
+          }
+          throw new CompletionException(new CraftyException(
+            "Crafty " + action + " returned status " + status + ": " + resp.body(), status));
+        });
+    }).whenComplete((resp, ex) -> {
+      if (ex == null) {
+        result.complete(resp);
+        return;
+      }
+      Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+      if (retriesLeft > 0 && isRetryable(cause)) {
+        long cap = RETRY_BASE_DELAY_MILLIS << Math.min(attemptNo, 6);
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+        logger.debug("Crafty {} attempt {} failed ({}); retrying in {} ms", action, attemptNo + 1, cause.getMessage(), delay);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+          .execute(() -> attempt(action, req, priority, retriesLeft - 1, attemptNo + 1, result));
+      } else {
+        result.completeExceptionally(cause);
+      }
+    });
+  }
+
+  private static boolean isHostFault(int status) {
+    return status == 429 || status / 100 == 5;
+  }
+
+  private static boolean isRetryable(Throwable t) {
+    if (t instanceof CraftyException) return ((CraftyException) t).isRetryable();
+    // connection refused/reset, HttpTimeoutException, ...
+    return t instanceof IOException;
+  }
+
+  private static String bearerHeader(String key) {
+    if (key == null) return "";
+    if (key.startsWith("Bearer ")) return key;
+    return "Bearer " + key;
+  }
+
+  private static String trimSlash(String s) {
+    if (s == null) return "";
+    if (s.endsWith("/")) return s.substring(0, s.length() - 1);
+    return s;
+  }
+}
@@ -0,0 +1,60 @@
+package com.lazymcvelocitycrafty.crafty;
+
+import com.lazymcvelocitycrafty.config.CraftyHostSettings;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import org.slf4j.Logger;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One CraftyClient per configured Crafty host, each with its own HttpClient, concurrency limit
+ * and circuit breaker. Servers are routed by their crafty_host; unknown ids use the default host.
+ * The set of hosts is fixed at startup (adding one needs a restart).
+ */
+public class CraftyClientPool {
+
+  private final PluginConfig config;
+  private final Map<String, CraftyClient> clients;
+
+  public CraftyClientPool(PluginConfig config, Metrics metrics, Logger logger) {
+    this.config = config;
+    Metrics.HistogramFamily latency = metrics.histogram("lazymc_crafty_request_seconds",
+      "Crafty API call latency per attempt", Metrics.API_SECONDS, "host", "action", "status");
+    Map<String, CraftyClient> built = new TreeMap<>();
+    for (CraftyHostSettings host : config.getCraftyHosts().values()) {
+      built.put(host.id(), new CraftyClient(host, config, latency, logger));
+    }
+    this.clients = Collections.unmodifiableMap(built);
+    if (clients.size() > 1) {
+      logger.info("Crafty hosts: {}", clients.keySet());
+    }
+  }
+
+  /**
+   * Client for the Crafty instance that runs this server.
+   */
+  public CraftyClient forServer(String server) {
+    return get(config.getCraftyHostId(server));
+  }
+
+  public CraftyClient get(String hostId) {
+    CraftyClient c = clients.get(hostId);
+    return (c != null) ? c : clients.get(CraftyHostSettings.DEFAULT_ID);
+  }
+
+  /**
+   * All clients by host id, sorted.
+   */
+  public Map<String, CraftyClient> getClients() {
+    return clients;
+  }
+
+  public int getInFlight() {
+    int n = 0;
+    for (CraftyClient c : clients.values()) n += c.getInFlight();
+    return n;
+  }
+}
@@ -0,0 +1,23 @@
+package com.lazymcvelocitycrafty.crafty;
+
+import java.io.IOException;
+
+/**
+ * A Crafty API call that did not succeed: non-2xx answer, or rejected locally because the
+ * circuit breaker is open. statusCode is -1 when no HTTP response was received.
+ */
+public class CraftyException extends IOException {
+
+  private final int statusCode;
+
+  public CraftyException(String message, int statusCode) {
+    super(message);
+    this.statusCode = statusCode;
+  }
+
+  public int getStatusCode() { return statusCode; }
+
+  public boolean isRetryable() {
+    return statusCode == 429 || statusCode / 100 == 5;
+  }
+}
@@ -0,0 +1,21 @@
+package com.lazymcvelocitycrafty.crafty;
+
+/**
+ * Successful (2xx) Crafty API answer.
+ */
+public final class CraftyResponse {
+
+  private final int statusCode;
+  private final String body;
+  private final long latencyMillis;
+
+  public CraftyResponse(int statusCode, String body, long latencyMillis) {
+    this.statusCode = statusCode;
+    this.body = body;
+    this.latencyMillis = latencyMillis;
+  }
+
+  public int getStatusCode() { return statusCode; }
+  public String getBody() { return body; }
+  public long getLatencyMillis() { return latencyMillis; }
+}
@@ -0,0 +1,65 @@
+package com.lazymcvelocitycrafty.crafty;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-action latency and outcome counters for Crafty API calls. Each HTTP attempt (including
+ * retries) is recorded once; status -1 means no response (timeout, connection error).
+ */
+public class CraftyStats {
+
+  public static final class ActionStats {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final AtomicLong maxMillis = new AtomicLong();
+    private final ConcurrentMap<Integer, LongAdder> byStatus = new ConcurrentHashMap<>();
+
+    void record(int status, long millis, boolean success) {
+      calls.increment();
+      if (!success) failures.increment();
+      totalMillis.add(millis);
+      maxMillis.accumulateAndGet(millis, Math::max);
+      byStatus.computeIfAbsent(status, k -> new LongAdder()).increment();
+    }
+
+    public long getCalls() { return calls.sum(); }
+    public long getFailures() { return failures.sum(); }
+    public long getMaxMillis() { return maxMillis.get(); }
+
+    public double getMeanMillis() {
+      long n = calls.sum();
+      return (n == 0) ? 0.0 : (double) totalMillis.sum() / n;
+    }
+
+    public Map<Integer, Long> getByStatus() {
+      Map<Integer, Long> out = new TreeMap<>();
+      byStatus.forEach((k, v) -> out.put(k, v.sum()));
+      return out;
+    }
+  }
+
+  private final ConcurrentMap<String, ActionStats> actions = new ConcurrentHashMap<>();
+  private final LongAdder rejectedByBreaker = new LongAdder();
+
+  void record(String action, int status, long millis, boolean success) {
+    actions.computeIfAbsent(action, k -> new ActionStats()).record(status, millis, success);
+  }
+
+  void recordRejected() {
+    rejectedByBreaker.increment();
+  }
+
+  public Map<String, ActionStats> getActions() {
+    return new TreeMap<>(actions);
+  }
+
+  public long getRejectedByBreaker() {
+    return rejectedByBreaker.sum();
+  }
+}
@@ -0,0 +1,117 @@
+package com.lazymcvelocitycrafty.crafty;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.server.BackendStateRegistry;
+import com.lazymcvelocitycrafty.server.ServerState;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Learns backend state from Crafty's /servers/{id}/stats instead of pinging the Minecraft port.
+ *
+ * One sweep requests stats for every configured UUID in parallel (bounded by each Crafty host's
+ * concurrency cap) and feeds the result into the BackendStateRegistry:
+ *  - running, version reported  -> ONLINE (Crafty's own ping got an answer)
+ *  - running, no version yet    -> STARTING
+ *  - crashed                    -> OFFLINE, logged once
+ *  - not running                -> OFFLINE
+ * A server whose stats call fails keeps its current state.
+ */
+public class CraftyStatusPoller {
+
+  private final CraftyClientPool crafty;
+  private final PluginConfig config;
+  private final BackendStateRegistry states;
+  private final Logger logger;
+
+  // skip a sweep while the previous one is still waiting on Crafty
+  private final AtomicBoolean sweeping = new AtomicBoolean();
+  private final Set<String> crashed = ConcurrentHashMap.newKeySet();
+
+  public CraftyStatusPoller(CraftyClientPool crafty, PluginConfig config, BackendStateRegistry states, Logger logger) {
+    this.crafty = crafty;
+    this.config = config;
+    this.states = states;
+    this.logger = logger;
+  }
+
+  public CompletableFuture<Void> sweep() {
+    if (!sweeping.compareAndSet(false, true)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    AtomicInteger failed = new AtomicInteger();
+    List<CompletableFuture<Void>> calls = new ArrayList<>();
+    for (String name : config.getManagedServers()) {
+      Optional<String> uuid = config.getServerUuid(name);
+      // locally run servers report their own state through the local driver
+      if (uuid.isEmpty() || config.getServer(name).local() != null) continue;
+      calls.add(crafty.forServer(name).get("stats", "/api/v2/servers/" + uuid.get() + "/stats")
+        .thenAccept(resp -> apply(name, resp.getBody()))
+        .exceptionally(ex -> {
+          failed.incrementAndGet();
+          return null;
+        }));
+    }
+    return CompletableFuture.allOf(calls.toArray(new CompletableFuture[0]))
+      .whenComplete((v, ex) -> {
+        sweeping.set(false);
+        if (failed.get() > 0) {
+          logger.debug("Crafty status sweep: {}/{} stats calls failed", failed.get(), calls.size());
+        }
+      });
+  }
+
+  private void apply(String name, String body) {
+    JsonObject data;
+    try {
+      JsonElement root = JsonParser.parseString(body);
+      data = root.getAsJsonObject().getAsJsonObject("data");
+    } catch (Exception ex) {
+      logger.debug("Unreadable Crafty stats for {}: {}", name, ex.getMessage());
+      return;
+    }
+    if (data == null) return;
+
+    boolean running = bool(data, "running");
+    if (bool(data, "crashed")) {
+      if (crashed.add(name)) {
+        logger.warn("Crafty reports {} as crashed", name);
+      }
+      states.observe(name, ServerState.OFFLINE);
+      return;
+    }
+    crashed.remove(name);
+
+    if (!running) {
+      states.observe(name, ServerState.OFFLINE);
+    } else if (hasVersion(data)) {
+      states.observe(name, ServerState.ONLINE);
+    } else {
+      states.observe(name, ServerState.STARTING);
+    }
+  }
+
+  private static boolean bool(JsonObject o, String key) {
+    JsonElement e = o.get(key);
+    return e != null && e.isJsonPrimitive() && e.getAsBoolean();
+  }
+
+  // Crafty fills "version" from its own status ping; "False"/empty means no answer yet
+  private static boolean hasVersion(JsonObject o) {
+    JsonElement e = o.get("version");
+    if (e == null || !e.isJsonPrimitive()) return false;
+    String v = e.getAsString();
+    return !v.isEmpty() && !"False".equalsIgnoreCase(v);
+  }
+}
@@ -0,0 +1,362 @@
+package com.lazymcvelocitycrafty.group;
+
+import com.lazymcvelocitycrafty.LazyMCVelocityCrafty;
+import com.lazymcvelocitycrafty.config.GroupSettings;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import com.lazymcvelocitycrafty.mode.ModeManager;
+import com.lazymcvelocitycrafty.server.BackendStateRegistry;
+import com.lazymcvelocitycrafty.server.ServerManager;
+import com.lazymcvelocitycrafty.server.ServerState;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pools of interchangeable backends ([groups.<name>]) with warm spares and elastic scaling.
+ *
+ * A connect to the group name (or to a member that is not up) goes to a ready member right away:
+ * with routing "pack" the fullest ONLINE member that still has room, so empty members stay spare;
+ * with "least_loaded" the emptiest one. Each group keeps warm_spares empty members ONLINE or
+ * booting; whenever one gets used, crashes or is stopped, a replacement is started in the
+ * background. Only empty members beyond warm_spares are left to idle shutdown.
+ *
+ * Elastic groups (scale_out_occupancy and max_players_per_member set) also watch occupancy, the
+ * group's players over the capacity of its live members. At or above scale_out_occupancy the next
+ * member is started; at or below scale_in_occupancy the least-loaded member is drained: it gets no
+ * new players, is stopped once empty, and its remaining players are moved to a sibling after
+ * drain_timeout_seconds. A scale-in only happens if the remaining members would stay below
+ * scale_out_occupancy, and a group waits scale_cooldown_seconds after each action, so load near
+ * a threshold does not make members flap.
+ */
+public class GroupManager implements BackendStateRegistry.StateListener {
+
+  // a member just routed to counts as used until the player shows up in the presence index
+  private static final long CLAIM_MILLIS = 10_000L;
+
+  private final LazyMCVelocityCrafty plugin;
+  private final PluginConfig config;
+  private final ServerManager serverManager;
+  private final ModeManager modeManager;
+  private final Logger logger;
+  // serverName -> when a connect was last routed to it
+  private final Map<String, Long> claims = new ConcurrentHashMap<>();
+  // serverName -> when its drain started
+  private final Map<String, Long> draining = new ConcurrentHashMap<>();
+  // groupName -> last scale-out/in
+  private final Map<String, Long> lastScale = new ConcurrentHashMap<>();
+  private final Metrics.CounterFamily scaleEvents;
+
+  public GroupManager(LazyMCVelocityCrafty plugin, PluginConfig config, ServerManager serverManager,
+                      ModeManager modeManager, Logger logger) {
+    this.plugin = plugin;
+    this.config = config;
+    this.serverManager = serverManager;
+    this.modeManager = modeManager;
+    this.logger = logger;
+    this.scaleEvents = plugin.getMetrics().counter("lazymc_group_scale_total", "Elastic group scale actions",
+      "group", "direction");
+  }
+
+  /**
+   * Start listening for state changes, run the periodic spare/scaling check and export metrics.
+   * Call once on plugin init.
+   */
+  public void schedule() {
+    serverManager.getStates().addListener(this);
+    plugin.getMetrics().gaugeFamily("lazymc_group_spares", "Empty members ONLINE or booting per server group",
+      () -> perGroup(g -> countSpares(g)), "group");
+    plugin.getMetrics().gaugeFamily("lazymc_group_occupancy", "Players over the capacity of live members (elastic groups)",
+      () -> perGroup(g -> g.isElastic() ? getOccupancy(g) : 0), "group");
+    long interval = Math.max(1, config.getCheckIntervalSeconds());
+    plugin.getProxy().getScheduler().buildTask(plugin, this::tick)
+      .delay(interval, TimeUnit.SECONDS)
+      .repeat(interval, TimeUnit.SECONDS)
+      .schedule();
+  }
+
+  private Map<List<String>, Number> perGroup(java.util.function.Function<GroupSettings, Number> value) {
+    Map<List<String>, Number> out = new HashMap<>();
+    config.getGroups().forEach((name, g) -> out.put(List.of(name), value.apply(g)));
+    return out;
+  }
+
+  /**
+   * Where a connect to target should go instead: a member when target is a group name, or a ready
+   * sibling when target is a member that is not ONLINE or is draining. Null leaves the connect
+   * alone. For a group without a ready member this is the member to boot (or one already booting).
+   */
+  public String route(String target) {
+    GroupSettings g = config.getGroup(target);
+    boolean direct = false;
+    if (g == null) {
+      String groupName = config.getGroupOf(target);
+      if (groupName == null) return null;
+      if (serverManager.getServerState(target) == ServerState.ONLINE && !isDraining(target)) return null;
+      g = config.getGroup(groupName);
+      direct = true;
+    }
+    if (g == null) return null;
+
+    String member = pickReady(g, null);
+    if (member == null) {
+      member = direct ? null : pickCold(g);
+    }
+    if (member != null) {
+      claims.put(member, System.currentTimeMillis());
+    }
+    replenish(g);
+    return member;
+  }
+
+  /**
+   * Whether idle shutdown must leave this server running because it is one of its group's warm
+   * spares. The first empty members in member order are the spares.
+   */
+  public boolean isNeededSpare(String server) {
+    String groupName = config.getGroupOf(server);
+    GroupSettings g = (groupName == null) ? null : config.getGroup(groupName);
+    if (g == null || g.warmSpares() == 0) return false;
+    int kept = 0;
+    for (String member : g.members()) {
+      if (!isSpare(member)) continue;
+      if (member.equals(server)) return true;
+      if (++kept >= g.warmSpares()) return false;
+    }
+    return false;
+  }
+
+  public boolean isDraining(String server) {
+    return draining.containsKey(server);
+  }
+
+  /**
+   * Empty members of a group that are ONLINE or booting.
+   */
+  public int countSpares(GroupSettings g) {
+    int spares = 0;
+    for (String member : g.members()) {
+      if (isSpare(member)) spares++;
+    }
+    return spares;
+  }
+
+  /**
+   * Players (connected and queued) over the player capacity of the group's live, non-draining
+   * members. Above 1 when there is load but no live member.
+   */
+  public double getOccupancy(GroupSettings g) {
+    int live = 0;
+    int load = 0;
+    for (String member : g.members()) {
+      load += load(member);
+      if (isLive(member) && !isDraining(member)) live++;
+    }
+    if (live == 0) return (load > 0) ? 2.0 : 0.0;
+    return load / (double) (live * Math.max(1, g.maxPlayersPerMember()));
+  }
+
+  @Override
+  public void onStateChange(String server, ServerState from, ServerState to) {
+    if (to == ServerState.OFFLINE) {
+      draining.remove(server);
+    }
+    // a spare crashed, was stopped or came up; recheck its group
+    if (to == ServerState.OFFLINE || to == ServerState.ONLINE) {
+      String groupName = config.getGroupOf(server);
+      GroupSettings g = (groupName == null) ? null : config.getGroup(groupName);
+      if (g != null) replenish(g);
+    }
+  }
+
+  private void tick() {
+    for (GroupSettings g : config.getGroups().values()) {
+      replenish(g);
+      if (g.isElastic()) scale(g);
+      progressDrains(g);
+    }
+  }
+
+  /**
+   * Boot offline members until the group has warm_spares empty members ONLINE or booting.
+   */
+  private void replenish(GroupSettings g) {
+    int missing = g.warmSpares() - countSpares(g);
+    for (String member : g.members()) {
+      if (missing <= 0) return;
+      if (!canStart(member)) continue;
+      logger.info("Starting {} as a warm spare for group {}", member, g.name());
+      start(g, member);
+      missing--;
+    }
+  }
+
+  private void scale(GroupSettings g) {
+    long now = System.currentTimeMillis();
+    Long last = lastScale.get(g.name());
+    if (last != null && now - last < g.scaleCooldownSeconds() * 1000L) return;
+
+    double occupancy = getOccupancy(g);
+    if (occupancy >= g.scaleOutOccupancy()) {
+      scaleOut(g, occupancy, now);
+      return;
+    }
+    if (occupancy > g.scaleInOccupancy()) return;
+
+    int live = 0;
+    int load = 0;
+    for (String member : g.members()) {
+      load += load(member);
+      if (isLive(member) && !isDraining(member)) live++;
+    }
+    if (live <= Math.max(1, g.minOnline())) return;
+    // the members left behind must not be pushed straight back over the scale-out threshold
+    double after = load / (double) ((live - 1) * g.maxPlayersPerMember());
+    if (after >= g.scaleOutOccupancy()) return;
+
+    String victim = null;
+    int victimLoad = Integer.MAX_VALUE;
+    for (String member : g.members()) {
+      if (serverManager.getServerState(member) != ServerState.ONLINE || isDraining(member)) continue;
+      if (isNeededSpare(member) || !modeManager.canShutdown(member)) continue;
+      int l = load(member);
+      // on ties drain the member furthest down the preference order
+      if (l <= victimLoad) {
+        victim = member;
+        victimLoad = l;
+      }
+    }
+    if (victim == null) return;
+    logger.info("Group {} at {}% occupancy, draining {} ({} players)", g.name(),
+      Math.round(occupancy * 100), victim, victimLoad);
+    draining.put(victim, now);
+    lastScale.put(g.name(), now);
+    scaleEvents.labels(g.name(), "in").inc();
+  }
+
+  private void scaleOut(GroupSettings g, double occupancy, long now) {
+    // a member still draining is up already; taking it back is cheaper than a boot
+    for (String member : g.members()) {
+      if (isDraining(member) && serverManager.getServerState(member) == ServerState.ONLINE) {
+        draining.remove(member);
+        logger.info("Group {} at {}% occupancy, cancelling drain of {}", g.name(), Math.round(occupancy * 100), member);
+        lastScale.put(g.name(), now);
+        scaleEvents.labels(g.name(), "out").inc();
+        return;
+      }
+    }
+    for (String member : g.members()) {
+      if (!canStart(member)) continue;
+      logger.info("Group {} at {}% occupancy, starting {}", g.name(), Math.round(occupancy * 100), member);
+      start(g, member);
+      lastScale.put(g.name(), now);
+      scaleEvents.labels(g.name(), "out").inc();
+      return;
+    }
+    logger.debug("Group {} at {}% occupancy but no member left to start", g.name(), Math.round(occupancy * 100));
+  }
+
+  /**
+   * Stop drained members once empty; after drain_timeout_seconds move whoever is left to a sibling.
+   * The stop goes through the idle-shutdown pipeline, so it is staggered per host like any other.
+   */
+  private void progressDrains(GroupSettings g) {
+    long now = System.currentTimeMillis();
+    for (String member : g.members()) {
+      Long since = draining.get(member);
+      if (since == null || serverManager.getServerState(member) != ServerState.ONLINE) continue;
+      if (!modeManager.canShutdown(member)) {
+        // its mode changed since the drain started; keep it in rotation
+        logger.info("Cancelling drain of {}: its mode no longer allows shutdown", member);
+        draining.remove(member);
+      } else if (serverManager.getPlayerCount(member) == 0) {
+        plugin.getInactivityTracker().submitStop(member, () -> isDrainedEmpty(member));
+      } else if (now - since >= g.drainTimeoutSeconds() * 1000L) {
+        String dest = pickReady(g, member);
+        if (dest != null) {
+          logger.info("Drain of {} timed out, moving {} players to {}", member, serverManager.getPlayerCount(member), dest);
+          serverManager.movePlayersToLobby(member, dest);
+        }
+      }
+    }
+  }
+
+  // rechecked right before the queued stop is sent: players may have come back or the drain was cancelled
+  private boolean isDrainedEmpty(String member) {
+    return isDraining(member) && serverManager.getServerState(member) == ServerState.ONLINE
+      && serverManager.getPlayerCount(member) == 0 && serverManager.getPendingCount(member) == 0
+      && modeManager.canShutdown(member);
+  }
+
+  private boolean canStart(String member) {
+    return serverManager.getServerState(member) == ServerState.OFFLINE && !serverManager.isStartPending(member)
+      && modeManager.getMode(member).allowsAutoStart();
+  }
+
+  private void start(GroupSettings g, String member) {
+    serverManager.startServer(member).exceptionally(ex -> {
+      logger.warn("Starting {} for group {} failed: {}", member, g.name(), ex.getMessage());
+      return null;
+    });
+  }
+
+  // ONLINE, booting or about to boot
+  private boolean isLive(String member) {
+    ServerState state = serverManager.getServerState(member);
+    return state == ServerState.ONLINE || state == ServerState.STARTING
+      || (state == ServerState.OFFLINE && serverManager.isStartPending(member));
+  }
+
+  // live, empty, unclaimed and not draining
+  private boolean isSpare(String member) {
+    return isLive(member) && load(member) == 0 && !isClaimed(member) && !isDraining(member);
+  }
+
+  private boolean isClaimed(String member) {
+    Long at = claims.get(member);
+    if (at == null) return false;
+    if (System.currentTimeMillis() - at < CLAIM_MILLIS) return true;
+    claims.remove(member, at);
+    return false;
+  }
+
+  private int load(String member) {
+    return serverManager.getPlayerCount(member) + serverManager.getPendingCount(member);
+  }
+
+  // ONLINE, non-draining member with room: the fullest for "pack", the emptiest for "least_loaded"
+  private String pickReady(GroupSettings g, String exclude) {
+    boolean spread = GroupSettings.ROUTING_LEAST_LOADED.equals(g.routing());
+    String best = null;
+    int bestLoad = 0;
+    for (String member : g.members()) {
+      if (member.equals(exclude) || isDraining(member)) continue;
+      if (serverManager.getServerState(member) != ServerState.ONLINE) continue;
+      if (!modeManager.getMode(member).allowsAutoStart()) continue;
+      int load = load(member);
+      if (g.maxPlayersPerMember() > 0 && load >= g.maxPlayersPerMember()) continue;
+      if (best == null || (spread ? load < bestLoad : load > bestLoad)) {
+        best = member;
+        bestLoad = load;
+      }
+    }
+    return best;
+  }
+
+  // nothing ready: join a member that is already booting, else the first one allowed to start
+  private String pickCold(GroupSettings g) {
+    String first = null;
+    for (String member : g.members()) {
+      if (!modeManager.getMode(member).allowsAutoStart()) continue;
+      if (serverManager.getServerState(member) == ServerState.STARTING || serverManager.isStartPending(member)) {
+        return member;
+      }
+      if (first == null && serverManager.getServerState(member) == ServerState.OFFLINE) first = member;
+    }
+    return (first != null) ? first : g.members().get(0);
+  }
+}
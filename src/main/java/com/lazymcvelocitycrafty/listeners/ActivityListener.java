@@ -0,0 +1,71 @@
+package com.lazymcvelocitycrafty.listeners;
+
+import com.lazymcvelocitycrafty.tracker.InactivityTracker;
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.command.CommandExecuteEvent;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.PluginMessageEvent;
+import com.velocitypowered.api.event.player.PlayerChatEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
+
+/**
+ * Turns player and backend events into activity on the server they happened on, so idle time is
+ * measured from the last thing that actually happened there.
+ */
+public class ActivityListener {
+
+  private final InactivityTracker tracker;
+  // null when backend heartbeats are disabled
+  private final ChannelIdentifier heartbeatChannel;
+
+  public ActivityListener(InactivityTracker tracker, ChannelIdentifier heartbeatChannel) {
+    this.tracker = tracker;
+    this.heartbeatChannel = heartbeatChannel;
+  }
+
+  @Subscribe
+  public void onServerConnected(ServerConnectedEvent event) {
+    tracker.recordActivity(event.getServer().getServerInfo().getName());
+    // the server being left was just active too; its idle time starts now
+    event.getPreviousServer().ifPresent(prev -> tracker.recordActivity(prev.getServerInfo().getName()));
+  }
+
+  @Subscribe
+  public void onDisconnect(DisconnectEvent event) {
+    touchCurrent(event.getPlayer());
+  }
+
+  @Subscribe
+  public void onChat(PlayerChatEvent event) {
+    touchCurrent(event.getPlayer());
+  }
+
+  @Subscribe
+  public void onCommand(CommandExecuteEvent event) {
+    CommandSource source = event.getCommandSource();
+    if (source instanceof Player) {
+      touchCurrent((Player) source);
+    }
+  }
+
+  /**
+   * Backends can send an empty message on the heartbeat channel to report activity the proxy
+   * cannot see (redstone farms, scheduled events). It is consumed here and not forwarded.
+   */
+  @Subscribe
+  public void onPluginMessage(PluginMessageEvent event) {
+    if (heartbeatChannel == null || !heartbeatChannel.equals(event.getIdentifier())) return;
+    event.setResult(PluginMessageEvent.ForwardResult.handled());
+    if (event.getSource() instanceof ServerConnection) {
+      tracker.recordActivity(((ServerConnection) event.getSource()).getServerInfo().getName());
+    }
+  }
+
+  private void touchCurrent(Player player) {
+    player.getCurrentServer().ifPresent(conn -> tracker.recordActivity(conn.getServerInfo().getName()));
+  }
+}
@@ -0,0 +1,28 @@
+package com.lazymcvelocitycrafty.listeners;
+
+import com.lazymcvelocitycrafty.server.PlayerPresenceIndex;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+
+/**
+ * Feeds connection events into the PlayerPresenceIndex.
+ */
+public class PlayerPresenceListener {
+
+  private final PlayerPresenceIndex presence;
+
+  public PlayerPresenceListener(PlayerPresenceIndex presence) {
+    this.presence = presence;
+  }
+
+  @Subscribe
+  public void onServerConnected(ServerConnectedEvent event) {
+    presence.connected(event.getPlayer().getUniqueId(), event.getServer().getServerInfo().getName());
+  }
+
+  @Subscribe
+  public void onDisconnect(DisconnectEvent event) {
+    presence.disconnected(event.getPlayer().getUniqueId());
+  }
+}
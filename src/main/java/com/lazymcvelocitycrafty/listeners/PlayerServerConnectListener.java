@@ -3,15 +3,18 @@ package com.lazymcvelocitycrafty.listeners;
 import com.lazymcvelocitycrafty.LazyMCVelocityCrafty;
 import com.lazymcvelocitycrafty.mode.ModeManager;
 import com.lazymcvelocitycrafty.mode.ServerMode;
+import com.lazymcvelocitycrafty.server.BackendStatus;
 import com.lazymcvelocitycrafty.server.ServerManager;
+import com.lazymcvelocitycrafty.server.ServerState;
+import com.velocitypowered.api.event.Continuation;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.Subscribe;
-import com.velocitypowered.api.event.connection.ServerPreConnectEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
 import com.velocitypowered.api.proxy.Player;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 
-import java.util.Optional;
-
 public class PlayerServerConnectListener {
 
   private final LazyMCVelocityCrafty plugin;
@@ -24,52 +27,134 @@ public class PlayerServerConnectListener {
     this.modeManager = modeManager;
   }
 
+  /**
+   * Connects to ONLINE or unmanaged servers pass straight through. Everything else is handled in
+   * an async EventTask so no decision or wait happens on the event thread.
+   */
   @Subscribe
-  public void onServerPreConnect(ServerPreConnectEvent event) {
-    Player player = event.getPlayer();
+  public EventTask onServerPreConnect(ServerPreConnectEvent event) {
     var serverOpt = event.getResult().getServer();
-    if (serverOpt.isEmpty()) return;
-    String target = serverOpt.get().getServerInfo().getName();
+    if (serverOpt.isEmpty()) return null;
+    String target = routeToGroupMember(event, serverOpt.get().getServerInfo().getName());
 
     if (!serverManager.hasServer(target)) {
       // Not a managed server, let Velocity handle normally
-      return;
+      return null;
+    }
+
+    // cached state only; server is online - let Velocity handle the connection normally
+    if (serverManager.getServerState(target) == ServerState.ONLINE) {
+      return null;
     }
+    return EventTask.withContinuation(continuation -> {
+      try {
+        handleNotOnline(event, target, continuation);
+      } catch (Exception ex) {
+        continuation.resumeWithException(ex);
+      }
+    });
+  }
+
+  /**
+   * Connects to a server group, or to a group member that is not up, are retargeted at the member
+   * the GroupManager picks. Returns the name the rest of the handling should use.
+   */
+  private String routeToGroupMember(ServerPreConnectEvent event, String target) {
+    String member = plugin.getGroupManager().route(target);
+    if (member == null || member.equals(target)) return target;
+    var registered = plugin.getProxy().getServer(member);
+    if (registered.isEmpty()) return target;
+    event.setResult(ServerPreConnectEvent.ServerResult.allowed(registered.get()));
+    return member;
+  }
 
+  private void handleNotOnline(ServerPreConnectEvent event, String target, Continuation continuation) {
+    Player player = event.getPlayer();
     ServerMode mode = modeManager.getMode(target);
-    boolean online = serverManager.isServerOnline(target);
-
-    if (!online) {
-      if (!mode.allowsAutoStart()) {
-        // mode disallows auto start: send to lobby (if configured) and deny connect
-        player.sendMessage(Component.text(target + " is currently disabled. Redirecting to lobby.").color(NamedTextColor.RED));
-        var lobby = plugin.getProxy().getServer(plugin.getConfig().getLobbyServer());
-        lobby.ifPresent(r -> player.createConnectionRequest(r).connect());
-        event.setResult(ServerPreConnectEvent.ServerResult.denied());
-        return;
-      } 
-
-      // mode allows auto-start: request start and handle queueing
-      player.sendMessage(Component.text(target + " is starting. You will be connected automatically when it is ready.").color(NamedTextColor.YELLOW));
-        
-      // queue player for auto-connect
-      serverManager.addPendingPlayer(target, player.getUniqueId());
-
-      // trigger start (async)
+    ServerState state = serverManager.getServerState(target);
+
+    if (!mode.allowsAutoStart()) {
+      // mode disallows auto start: send to lobby (if configured) instead
+      player.sendMessage(Component.text(target + " is currently disabled. Redirecting to lobby.").color(NamedTextColor.RED));
+      redirectToLobby(event, player);
+      continuation.resume();
+      return;
+    }
+
+    // trigger start (async); already-booting servers need no further request
+    if (state != ServerState.STARTING) {
       serverManager.startServer(target).exceptionally(ex -> {
         player.sendMessage(Component.text("Failed to request server start: " + ex.getMessage()).color(NamedTextColor.RED));
         return null;
       });
+    }
 
-      // redirect player to lobby if not already there (we keep players on backend per earlier rule only for /server from backend;
-      // ServerPreConnectEvent cannot tell whether this was a /server from backend easily in all cases - for simplicity,
-      // we send to lobby non-online targets.)
-      var lobby = plugin.getProxy().getServer(plugin.getConfig().getLobbyServer());
-      lobby.ifPresent(r -> player.createConnectionRequest(r).connect());
-      event.setResult(ServerPreConnectEvent.ServerResult.denied());
+    // fast-booting server: keep the connect pending and complete it straight to the target
+    long holdMillis = expectedRemainingBootMillis(target);
+    int holdSeconds = plugin.getConfig().getHoldMaxBootSeconds(target);
+    if (holdSeconds > 0 && holdMillis >= 0 && holdMillis <= holdSeconds * 1000L) {
+      player.sendMessage(Component.text(target + " is starting, hold on a moment...").color(NamedTextColor.YELLOW));
+      serverManager.waitForServerOnline(target, holdSeconds).whenComplete((ok, ex) -> {
+        if (ex != null || !Boolean.TRUE.equals(ok)) {
+          queueAndRedirect(event, player, target);
+        }
+        // on success the original result (connect to target) stands
+        continuation.resume();
+      });
       return;
     }
 
-    // server is online - let Velocity handle the connection normally
+    queueAndRedirect(event, player, target);
+    continuation.resume();
+  }
+
+  private void queueAndRedirect(ServerPreConnectEvent event, Player player, String target) {
+    player.sendMessage(Component.text(target + " is starting. You will be connected automatically when it is ready.").color(NamedTextColor.YELLOW));
+    int position = serverManager.getStartScheduler().getQueuePosition(target);
+    if (position > 0) {
+      long etaSeconds = Math.max(0L, serverManager.getStartScheduler().getExpectedStartMillis(target) - System.currentTimeMillis()) / 1000L;
+      player.sendMessage(Component.text(target + " is #" + position + " in the start queue; boot expected to begin in ~" + etaSeconds + "s.").color(NamedTextColor.GRAY));
+    }
+    // queue player for auto-connect
+    serverManager.addPendingPlayer(target, player.getUniqueId());
+    // ServerPreConnectEvent cannot tell whether this was a /server from backend easily in all cases - for simplicity,
+    // we send to lobby non-online targets.
+    redirectToLobby(event, player);
+  }
+
+  /**
+   * Retarget this connection at the lobby rather than denying it and issuing a second request;
+   * players already on the lobby just stay there.
+   */
+  private void redirectToLobby(ServerPreConnectEvent event, Player player) {
+    String lobbyName = plugin.getConfig().getLobbyServer();
+    var lobby = plugin.getProxy().getServer(lobbyName);
+    boolean onLobby = player.getCurrentServer().map(c -> c.getServerInfo().getName().equals(lobbyName)).orElse(false);
+    if (lobby.isPresent() && !onLobby) {
+      event.setResult(ServerPreConnectEvent.ServerResult.allowed(lobby.get()));
+    } else {
+      event.setResult(ServerPreConnectEvent.ServerResult.denied());
+    }
+  }
+
+  // -1 when we have no boot history for this server
+  private long expectedRemainingBootMillis(String target) {
+    long expected = serverManager.getProber().getExpectedBootMillis(target);
+    if (expected < 0) return -1L;
+    BackendStatus status = serverManager.getStates().getStatus(target);
+    long elapsed = (status.getState() == ServerState.STARTING) ? System.currentTimeMillis() - status.getSinceMillis() : 0L;
+    return Math.max(0L, expected - elapsed);
+  }
+
+  @Subscribe
+  public void onServerConnected(ServerConnectedEvent event) {
+    String name = event.getServer().getServerInfo().getName();
+    if (!serverManager.hasServer(name)) return;
+    // one join per arrival; pre-connects repeat for retries, holds and the auto-connect of a queued player
+    plugin.getPrewarmManager().onJoin(name);
+    // a completed connection is the freshest proof of life we can get
+    if (serverManager.getServerState(name) != ServerState.ONLINE) {
+      serverManager.getStates().transition(name, ServerState.ONLINE);
+    }
   }
 }
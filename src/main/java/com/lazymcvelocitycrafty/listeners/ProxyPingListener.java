@@ -0,0 +1,110 @@
+package com.lazymcvelocitycrafty.listeners;
+
+import com.lazymcvelocitycrafty.config.GroupSettings;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import com.lazymcvelocitycrafty.server.PingStatusCache;
+import com.lazymcvelocitycrafty.server.ServerManager;
+import com.lazymcvelocitycrafty.server.ServerState;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.proxy.ProxyPingEvent;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Answers server-list pings for forced hosts of managed servers (or groups) from cached state.
+ *
+ * ONLINE: the backend's cached MOTD, version and favicon with the proxy's own player count.
+ * Anything else: ping.sleeping_motd / ping.starting_motd, with the last known version and max
+ * players. Only map lookups happen here; stale snapshots are refreshed in the background by
+ * PingStatusCache, so list spam never reaches a backend or wakes one.
+ */
+public class ProxyPingListener {
+
+  private final ProxyServer proxy;
+  private final PluginConfig config;
+  private final ServerManager serverManager;
+  private final PingStatusCache cache;
+  private final Metrics.CounterFamily answered;
+
+  public ProxyPingListener(ProxyServer proxy, PluginConfig config, ServerManager serverManager, Metrics metrics) {
+    this.proxy = proxy;
+    this.config = config;
+    this.serverManager = serverManager;
+    this.cache = serverManager.getPingCache();
+    this.answered = metrics.counter("lazymc_proxy_pings_total", "Server-list pings answered from cached state", "state");
+  }
+
+  @Subscribe
+  public void onProxyPing(ProxyPingEvent event) {
+    String target = forcedTarget(event);
+    if (target == null) return;
+
+    // a group shows as its best member: ONLINE if any is, players summed over all of them
+    GroupSettings group = config.getGroup(target);
+    List<String> members = (group != null) ? group.members() : List.of(target);
+    if (group == null && !serverManager.hasServer(target)) return;
+
+    ServerState state = ServerState.OFFLINE;
+    // any member's status for version and favicon; the MOTD only ever comes from an ONLINE one
+    PingStatusCache.Snapshot snapshot = null;
+    PingStatusCache.Snapshot online = null;
+    int players = 0;
+    for (String member : members) {
+      ServerState s = serverManager.getServerState(member);
+      PingStatusCache.Snapshot snap = cache.get(member);
+      if (s == ServerState.ONLINE) cache.refreshIfStale(member);
+      if (rank(s) > rank(state)) state = s;
+      if (snap != null && snapshot == null) snapshot = snap;
+      if (snap != null && online == null && s == ServerState.ONLINE) online = snap;
+      players += serverManager.getPlayerCount(member);
+    }
+    if (online != null) snapshot = online;
+
+    if (state == ServerState.ONLINE && online == null) {
+      // up but never pinged yet; let Velocity's answer stand until the refresh lands
+      answered.labels("passthrough").inc();
+      return;
+    }
+
+    ServerPing.Builder ping = event.getPing().asBuilder();
+    if (snapshot != null) {
+      ping.version(snapshot.getVersion());
+      ping.maximumPlayers(snapshot.getMaxPlayers());
+      if (snapshot.getFavicon() != null) ping.favicon(snapshot.getFavicon());
+    }
+    ping.onlinePlayers(players);
+    ping.clearSamplePlayers();
+    if (state == ServerState.ONLINE) {
+      ping.description(online.getDescription());
+    } else {
+      String motd = (state == ServerState.STARTING) ? config.getPingStartingMotd() : config.getPingSleepingMotd();
+      ping.description(MiniMessage.miniMessage().deserialize(motd, Placeholder.unparsed("server", target)));
+    }
+    event.setPing(ping.build());
+    answered.labels(state.name().toLowerCase(Locale.ROOT)).inc();
+  }
+
+  // first server of the forced host the client pinged, if any
+  private String forcedTarget(ProxyPingEvent event) {
+    InetSocketAddress vhost = event.getConnection().getVirtualHost().orElse(null);
+    if (vhost == null) return null;
+    List<String> servers = proxy.getConfiguration().getForcedHosts().get(vhost.getHostString().toLowerCase(Locale.ROOT));
+    return (servers == null || servers.isEmpty()) ? null : servers.get(0);
+  }
+
+  private static int rank(ServerState s) {
+    switch (s) {
+      case ONLINE: return 3;
+      case STARTING: return 2;
+      case STOPPING: return 1;
+      default: return 0;
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package com.lazymcvelocitycrafty.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Small in-process metrics registry with Prometheus text output.
+ *
+ * Counters and histograms are LongAdder-based, so recording from many threads never contends.
+ * Gauges are sampled on scrape from a supplier, so they cost nothing between scrapes.
+ */
+public class Metrics {
+
+  public static final double[] COLD_START_SECONDS = {5, 10, 20, 30, 45, 60, 90, 120, 180, 300};
+  public static final double[] API_SECONDS = {0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 20};
+
+  // name -> family, sorted for stable output
+  private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+  private abstract static class Family {
+    final String name;
+    final String help;
+    final String[] labelNames;
+
+    Family(String name, String help, String[] labelNames) {
+      this.name = name;
+      this.help = help;
+      this.labelNames = labelNames;
+    }
+
+    abstract String type();
+    abstract void write(StringBuilder out);
+
+    void header(StringBuilder out) {
+      out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+      out.append("# TYPE ").append(name).append(' ').append(type()).append('\n');
+    }
+
+    String labels(List<String> values, String extraName, String extraValue) {
+      if (labelNames.length == 0 && extraName == null) return "";
+      StringBuilder sb = new StringBuilder("{");
+      for (int i = 0; i < labelNames.length; i++) {
+        if (i > 0) sb.append(',');
+        sb.append(labelNames[i]).append("=\"").append(escape(values.get(i))).append('"');
+      }
+      if (extraName != null) {
+        if (labelNames.length > 0) sb.append(',');
+        sb.append(extraName).append("=\"").append(extraValue).append('"');
+      }
+      return sb.append('}').toString();
+    }
+  }
+
+  public static final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    public void inc() { value.increment(); }
+    public void add(long n) { value.add(n); }
+    public long get() { return value.sum(); }
+  }
+
+  public static final class CounterFamily extends Family {
+    private final ConcurrentMap<List<String>, Counter> series = new ConcurrentHashMap<>();
+
+    CounterFamily(String name, String help, String[] labelNames) {
+      super(name, help, labelNames);
+    }
+
+    public Counter labels(String... values) {
+      return series.computeIfAbsent(List.of(values), k -> new Counter());
+    }
+
+    @Override String type() { return "counter"; }
+
+    @Override
+    void write(StringBuilder out) {
+      header(out);
+      series.forEach((k, c) -> out.append(name).append(labels(k, null, null)).append(' ').append(c.get()).append('\n'));
+    }
+  }
+
+  public static final class Histogram {
+    private final double[] bounds;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram(double[] bounds) {
+      this.bounds = bounds;
+      this.buckets = new LongAdder[bounds.length];
+      for (int i = 0; i < bounds.length; i++) buckets[i] = new LongAdder();
+    }
+
+    public void observe(double value) {
+      // non-cumulative per bucket; made cumulative on scrape
+      int i = Arrays.binarySearch(bounds, value);
+      if (i < 0) i = -i - 1;
+      if (i < bounds.length) buckets[i].increment();
+      count.increment();
+      sum.add(value);
+    }
+
+    public long getCount() { return count.sum(); }
+    public double getSum() { return sum.sum(); }
+
+    public double getMean() {
+      long n = count.sum();
+      return (n == 0) ? 0.0 : sum.sum() / n;
+    }
+  }
+
+  public static final class HistogramFamily extends Family {
+    private final double[] bounds;
+    private final ConcurrentMap<List<String>, Histogram> series = new ConcurrentHashMap<>();
+
+    HistogramFamily(String name, String help, double[] bounds, String[] labelNames) {
+      super(name, help, labelNames);
+      this.bounds = bounds.clone();
+      Arrays.sort(this.bounds);
+    }
+
+    public Histogram labels(String... values) {
+      return series.computeIfAbsent(List.of(values), k -> new Histogram(bounds));
+    }
+
+    @Override String type() { return "histogram"; }
+
+    @Override
+    void write(StringBuilder out) {
+      header(out);
+      series.forEach((k, h) -> {
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+          cumulative += h.buckets[i].sum();
+          out.append(name).append("_bucket").append(labels(k, "le", format(bounds[i]))).append(' ').append(cumulative).append('\n');
+        }
+        out.append(name).append("_bucket").append(labels(k, "le", "+Inf")).append(' ').append(h.getCount()).append('\n');
+        out.append(name).append("_sum").append(labels(k, null, null)).append(' ').append(format(h.getSum())).append('\n');
+        out.append(name).append("_count").append(labels(k, null, null)).append(' ').append(h.getCount()).append('\n');
+      });
+    }
+  }
+
+  private static final class GaugeFamily extends Family {
+    // label values -> sampled value
+    private final Supplier<Map<List<String>, ? extends Number>> sampler;
+
+    GaugeFamily(String name, String help, String[] labelNames, Supplier<Map<List<String>, ? extends Number>> sampler) {
+      super(name, help, labelNames);
+      this.sampler = sampler;
+    }
+
+    @Override String type() { return "gauge"; }
+
+    @Override
+    void write(StringBuilder out) {
+      header(out);
+      sampler.get().forEach((k, v) -> out.append(name).append(labels(k, null, null)).append(' ').append(format(v.doubleValue())).append('\n'));
+    }
+  }
+
+  public CounterFamily counter(String name, String help, String... labelNames) {
+    return (CounterFamily) families.computeIfAbsent(name, k -> new CounterFamily(name, help, labelNames));
+  }
+
+  public HistogramFamily histogram(String name, String help, double[] bounds, String... labelNames) {
+    return (HistogramFamily) families.computeIfAbsent(name, k -> new HistogramFamily(name, help, bounds, labelNames));
+  }
+
+  public void gauge(String name, String help, Supplier<? extends Number> value) {
+    families.putIfAbsent(name, new GaugeFamily(name, help, new String[0], () -> Map.of(List.of(), value.get())));
+  }
+
+  /**
+   * A gauge with labels; the sampler returns one value per label-value tuple.
+   */
+  public void gaugeFamily(String name, String help, Supplier<Map<List<String>, ? extends Number>> sampler, String... labelNames) {
+    families.putIfAbsent(name, new GaugeFamily(name, help, labelNames, sampler));
+  }
+
+  /**
+   * Prometheus text exposition format (version 0.0.4).
+   */
+  public String scrape() {
+    StringBuilder out = new StringBuilder(4096);
+    for (Family f : families.values()) {
+      f.write(out);
+    }
+    return out.toString();
+  }
+
+  private static String format(double v) {
+    if (v == Math.rint(v) && !Double.isInfinite(v)) return Long.toString((long) v);
+    return Double.toString(v);
+  }
+
+  private static String escape(String s) {
+    return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
@@ -0,0 +1,56 @@
+package com.lazymcvelocitycrafty.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves GET /metrics in Prometheus text format from the JDK's built-in HTTP server.
+ */
+public class MetricsHttpServer {
+
+  private final Metrics metrics;
+  private final Logger logger;
+  private HttpServer server;
+
+  public MetricsHttpServer(Metrics metrics, Logger logger) {
+    this.metrics = metrics;
+    this.logger = logger;
+  }
+
+  public void start(String bindAddress, int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+    server.createContext("/metrics", exchange -> {
+      try (exchange) {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+          exchange.sendResponseHeaders(405, -1);
+          return;
+        }
+        byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+          os.write(body);
+        }
+      }
+    });
+    server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "lazymc-metrics-http");
+      t.setDaemon(true);
+      return t;
+    }));
+    server.start();
+    logger.info("Metrics endpoint listening on http://{}:{}/metrics", bindAddress, port);
+  }
+
+  public void stop() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+}
@@ -1,27 +1,45 @@
 package com.lazymcvelocitycrafty.mode;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.lazymcvelocitycrafty.util.AtomicFiles;
 import org.slf4j.Logger;
 
 import java.io.Reader;
-import java.io.Writer;
-import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Loads and persists server modes in modes.json under plugin data directory.
  * Auto-converts soft modes to STANDARD on plugin startup when they are non-persistent.
+ *
+ * Changes are written behind: setMode only marks the map dirty, and a background writer flushes
+ * all changes made within SAVE_DELAY_MILLIS in one temp-file-and-rename write.
  */
 public class ModeManager {
+  private static final long SAVE_DELAY_MILLIS = 250L;
+
   private final Path modeFile;
   private final Logger logger;
   private final Gson gson = new Gson();
   private final Map<String, ServerMode> modes = new ConcurrentHashMap<>();
 
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "lazymc-modes-writer");
+    t.setDaemon(true);
+    return t;
+  });
+
   public ModeManager(Path dataDirectory, Logger logger) {
     this.modeFile = dataDirectory.resolve("modes.json");
     this.logger = logger;
@@ -29,6 +47,7 @@ public class ModeManager {
 
   /**
    * Load existing modes.json. Non-persistent soft modes are converted to STANDARD.
+   * A truncated or otherwise damaged file keeps every entry that could still be read.
    */
   public void load() {
     try {
@@ -36,51 +55,106 @@ public class ModeManager {
         save(); // create empty file
         return;
       }
+      Map<String, String> raw = new LinkedHashMap<>();
+      boolean complete;
       try (Reader r = Files.newBufferedReader(modeFile)) {
-        Type t = new TypeToken<Map<String, String>>() {}.getType();
-        Map<String, String> raw = gson.fromJson(r, t);
-        if (raw == null) return;
-        for (Map.Entry<String, String> e : raw.entrySet()) {
-          try {
-            ServerMode m = ServerMode.valueOf(e.getValue());
-            // Soft modes should be reset to Standard on restart if non-persistent
-            if(!m.isPersistent() && (m == ServerMode.SOFT_FORCE_ON || m == ServerMode.SOFT_FORCE_OFF)) {
-              modes.put(e.getKey(), ServerMode.STANDARD);
-            } else {
-              modes.put(e.getKey(), m);
-            }
-          } catch (IllegalArgumentException iae) {
-            logger.warn("Unknown mode '{}' for server {}, defaulting to STANDARD", e.getValue(), e.getKey());
+        complete = readEntries(r, raw);
+      }
+      for (Map.Entry<String, String> e : raw.entrySet()) {
+        try {
+          ServerMode m = ServerMode.valueOf(e.getValue());
+          // Soft modes should be reset to Standard on restart if non-persistent
+          if(!m.isPersistent() && (m == ServerMode.SOFT_FORCE_ON || m == ServerMode.SOFT_FORCE_OFF)) {
             modes.put(e.getKey(), ServerMode.STANDARD);
+          } else {
+            modes.put(e.getKey(), m);
           }
+        } catch (IllegalArgumentException iae) {
+          logger.warn("Unknown mode '{}' for server {}, defaulting to STANDARD", e.getValue(), e.getKey());
+          modes.put(e.getKey(), ServerMode.STANDARD);
         }
       }
+      if (!complete) {
+        logger.warn("modes.json was damaged; recovered {} entries and rewriting it", raw.size());
+        save();
+      }
     } catch (Exception ex) {
       logger.error("Failed to load modes.json", ex);
     }
   }
 
+  // streams {"server":"MODE",...}; returns false if the input ended or broke before the closing brace
+  private static boolean readEntries(Reader r, Map<String, String> out) {
+    try {
+      JsonReader in = new JsonReader(r);
+      in.setLenient(true);
+      if (in.peek() == JsonToken.END_DOCUMENT) return false;
+      in.beginObject();
+      while (in.hasNext()) {
+        String key = in.nextName();
+        String value = in.nextString();
+        out.put(key, value);
+      }
+      in.endObject();
+      return true;
+    } catch (Exception ex) {
+      return false;
+    }
+  }
+
   /**
-   * Persist modes map to disk (stringified)
+   * Persist modes map to disk (stringified) right now, on the calling thread.
    */
   public synchronized void save() {
-    try (Writer w = Files.newBufferedWriter(modeFile)) {
+    try {
       // serialize as Map<String,String>
-      Map<String, String> out = new ConcurrentHashMap<>();
+      Map<String, String> out = new TreeMap<>();
       for (Map.Entry<String, ServerMode> e : modes.entrySet()) out.put(e.getKey(), e.getValue().name());
-      gson.toJson(out, w);
+      AtomicFiles.writeString(modeFile, gson.toJson(out));
     } catch (Exception ex) {
       logger.error("Failed to save modes.json", ex);
     }
   }
 
+  /**
+   * Let a pending write finish, stop the background writer and write once more, so a change made
+   * while that write ran is not lost. Call on proxy shutdown.
+   */
+  public void close() {
+    writer.shutdown();
+    try {
+      if (!writer.awaitTermination(SAVE_DELAY_MILLIS * 5, TimeUnit.MILLISECONDS)) {
+        logger.warn("modes.json writer did not finish within {} ms", SAVE_DELAY_MILLIS * 5);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    flushScheduled.set(false);
+    save();
+  }
+
   public ServerMode getMode(String server) {
     return modes.getOrDefault(server, ServerMode.STANDARD);
   }
 
   public void setMode(String server, ServerMode mode) {
     modes.put(server, mode);
-    save();
+    scheduleSave();
+  }
+
+  // coalesces every change inside the delay window into one write
+  private void scheduleSave() {
+    if (!flushScheduled.compareAndSet(false, true)) return;
+    try {
+      writer.schedule(() -> {
+        flushScheduled.set(false);
+        save();
+      }, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (Exception ex) {
+      // writer already shut down
+      flushScheduled.set(false);
+      save();
+    }
   }
 
   public boolean canAutoStart(String server) { return getMode(server).allowsAutoStart(); }
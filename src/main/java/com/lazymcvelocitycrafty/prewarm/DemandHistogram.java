@@ -0,0 +1,83 @@
+package com.lazymcvelocitycrafty.prewarm;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-server time-of-week join histogram: 168 hourly buckets, exponentially decayed so old
+ * habits fade out. Bucket values are normalised so {@link #expectedJoins} reads as "joins we
+ * expect in this hour of a typical week".
+ */
+public class DemandHistogram {
+
+  public static final int BUCKETS = 7 * 24;
+
+  private final ZoneId zone;
+  // per hour of decay; derived from the configured half-life
+  private final double hourlyDecay;
+  private final double weeklyNormaliser;
+
+  // serverName -> decayed join counts per hour-of-week (guarded by the array's monitor)
+  private final Map<String, double[]> buckets = new ConcurrentHashMap<>();
+
+  public DemandHistogram(ZoneId zone, double halfLifeDays) {
+    this.zone = zone;
+    this.hourlyDecay = Math.pow(0.5, 1.0 / Math.max(1.0, halfLifeDays * 24.0));
+    // steady state of a bucket fed x joins per week is x / (1 - decay^168)
+    this.weeklyNormaliser = 1.0 - Math.pow(hourlyDecay, BUCKETS);
+  }
+
+  public int bucketOf(long epochMillis) {
+    ZonedDateTime t = Instant.ofEpochMilli(epochMillis).atZone(zone);
+    return (t.getDayOfWeek().getValue() - 1) * 24 + t.getHour();
+  }
+
+  public void record(String server, long epochMillis) {
+    double[] b = buckets.computeIfAbsent(server, k -> new double[BUCKETS]);
+    synchronized (b) {
+      b[bucketOf(epochMillis)] += 1.0;
+    }
+  }
+
+  public double expectedJoins(String server, int bucket) {
+    double[] b = buckets.get(server);
+    if (b == null) return 0.0;
+    synchronized (b) {
+      return b[Math.floorMod(bucket, BUCKETS)] * weeklyNormaliser;
+    }
+  }
+
+  /**
+   * Age every bucket by the given number of hours. Called once per elapsed hour.
+   */
+  public void decay(int hours) {
+    double f = Math.pow(hourlyDecay, hours);
+    for (double[] b : buckets.values()) {
+      synchronized (b) {
+        for (int i = 0; i < b.length; i++) b[i] *= f;
+      }
+    }
+  }
+
+  /**
+   * Copy for persistence.
+   */
+  public Map<String, double[]> snapshot() {
+    Map<String, double[]> out = new java.util.HashMap<>();
+    buckets.forEach((k, b) -> {
+      synchronized (b) {
+        out.put(k, b.clone());
+      }
+    });
+    return out;
+  }
+
+  public void restore(Map<String, double[]> data) {
+    data.forEach((k, b) -> {
+      if (b != null && b.length == BUCKETS) buckets.put(k, b.clone());
+    });
+  }
+}
@@ -0,0 +1,170 @@
+package com.lazymcvelocitycrafty.prewarm;
+
+import com.google.gson.Gson;
+import com.lazymcvelocitycrafty.LazyMCVelocityCrafty;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.mode.ModeManager;
+import com.lazymcvelocitycrafty.server.ServerManager;
+import com.lazymcvelocitycrafty.server.ServerState;
+import com.lazymcvelocitycrafty.util.AtomicFiles;
+import org.slf4j.Logger;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Learns when players show up and starts servers shortly before they usually do.
+ *
+ * Joins feed a DemandHistogram persisted in demand.json. Once a minute every OFFLINE server whose
+ * expected joins for the current or upcoming hour (prewarm.lead_minutes ahead) reach
+ * prewarm.min_expected_joins is started. A pre-warm counts as a hit if someone joins within
+ * lead + 1h, otherwise as a miss. The same prediction holds off idle shutdown right before a peak.
+ */
+public class PrewarmManager {
+
+  private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  private final LazyMCVelocityCrafty plugin;
+  private final PluginConfig config;
+  private final ServerManager serverManager;
+  private final ModeManager modeManager;
+  private final Path file;
+  private final Logger logger;
+  private final Gson gson = new Gson();
+
+  private final DemandHistogram histogram;
+  // serverName -> when we pre-warmed it, until a join or the hit window resolves it
+  private final Map<String, Long> prewarmedAt = new ConcurrentHashMap<>();
+  private final AtomicLong prewarms = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private volatile long lastDecayMillis = System.currentTimeMillis();
+
+  // on-disk layout of demand.json
+  private static final class Persisted {
+    long lastDecayMillis;
+    long prewarms;
+    long hits;
+    long misses;
+    Map<String, double[]> servers;
+  }
+
+  public PrewarmManager(LazyMCVelocityCrafty plugin, PluginConfig config, ServerManager serverManager,
+                        ModeManager modeManager, Path dataDirectory, Logger logger) {
+    this.plugin = plugin;
+    this.config = config;
+    this.serverManager = serverManager;
+    this.modeManager = modeManager;
+    this.file = dataDirectory.resolve("demand.json");
+    this.logger = logger;
+    this.histogram = new DemandHistogram(ZoneId.systemDefault(), config.getPrewarmHalfLifeDays());
+  }
+
+  public boolean isEnabled() {
+    return config.isPrewarmEnabled();
+  }
+
+  public void load() {
+    if (!Files.exists(file)) return;
+    try (Reader r = Files.newBufferedReader(file)) {
+      Persisted p = gson.fromJson(r, Persisted.class);
+      if (p == null) return;
+      if (p.servers != null) histogram.restore(p.servers);
+      if (p.lastDecayMillis > 0) lastDecayMillis = p.lastDecayMillis;
+      prewarms.set(p.prewarms);
+      hits.set(p.hits);
+      misses.set(p.misses);
+    } catch (Exception ex) {
+      logger.warn("Failed to load demand.json, starting with an empty histogram: {}", ex.getMessage());
+    }
+  }
+
+  public synchronized void save() {
+    Persisted p = new Persisted();
+    p.lastDecayMillis = lastDecayMillis;
+    p.prewarms = prewarms.get();
+    p.hits = hits.get();
+    p.misses = misses.get();
+    p.servers = histogram.snapshot();
+    try {
+      AtomicFiles.writeString(file, gson.toJson(p));
+    } catch (Exception ex) {
+      logger.error("Failed to save demand.json", ex);
+    }
+  }
+
+  /**
+   * Schedule the once-a-minute pre-warm pass. Call this once on plugin init.
+   */
+  public void schedule() {
+    if (!isEnabled()) return;
+    plugin.getProxy().getScheduler().buildTask(plugin, this::tick).repeat(1, TimeUnit.MINUTES).schedule();
+  }
+
+  /**
+   * A player arrived on this server. Called once per completed connection, not per connect attempt.
+   */
+  public void onJoin(String server) {
+    if (!isEnabled()) return;
+    histogram.record(server, System.currentTimeMillis());
+    if (prewarmedAt.remove(server) != null) {
+      hits.incrementAndGet();
+      logger.info("Pre-warm of {} was a hit ({} hits / {} misses)", server, hits.get(), misses.get());
+    }
+  }
+
+  /**
+   * Whether demand is expected now or within the lead time, i.e. idle shutdown should wait.
+   */
+  public boolean isPeakImminent(String server) {
+    if (!isEnabled()) return false;
+    long now = System.currentTimeMillis();
+    double threshold = config.getPrewarmMinExpectedJoins();
+    long lead = TimeUnit.MINUTES.toMillis(config.getPrewarmLeadMinutes());
+    return histogram.expectedJoins(server, histogram.bucketOf(now)) >= threshold
+      || histogram.expectedJoins(server, histogram.bucketOf(now + lead)) >= threshold;
+  }
+
+  public long getPrewarms() { return prewarms.get(); }
+  public long getHits() { return hits.get(); }
+  public long getMisses() { return misses.get(); }
+
+  private void tick() {
+    long now = System.currentTimeMillis();
+
+    int hours = (int) ((now - lastDecayMillis) / HOUR_MILLIS);
+    if (hours > 0) {
+      histogram.decay(hours);
+      lastDecayMillis += hours * HOUR_MILLIS;
+      save();
+    }
+
+    long window = TimeUnit.MINUTES.toMillis(config.getPrewarmLeadMinutes()) + HOUR_MILLIS;
+    prewarmedAt.entrySet().removeIf(e -> {
+      if (now - e.getValue() < window) return false;
+      misses.incrementAndGet();
+      logger.info("Pre-warm of {} was a miss ({} hits / {} misses)", e.getKey(), hits.get(), misses.get());
+      return true;
+    });
+
+    for (String server : config.getManagedServers()) {
+      if (prewarmedAt.containsKey(server) || !modeManager.canAutoStart(server)) continue;
+      if (serverManager.getServerState(server) != ServerState.OFFLINE) continue;
+      if (!isPeakImminent(server)) continue;
+
+      logger.info("Pre-warming {} ahead of expected demand", server);
+      prewarmedAt.put(server, now);
+      prewarms.incrementAndGet();
+      serverManager.startServer(server).exceptionally(ex -> {
+        prewarmedAt.remove(server);
+        return null;
+      });
+    }
+  }
+}
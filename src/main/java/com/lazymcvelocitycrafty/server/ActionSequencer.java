@@ -0,0 +1,78 @@
+package com.lazymcvelocitycrafty.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Per-server single-flight for start/stop actions.
+ *
+ * A caller asking for the same action that is already the latest pending one for a server gets
+ * the existing future back instead of issuing another request. A different action is chained
+ * behind the pending one, so a start that arrives during a stop runs after the stop has finished.
+ */
+class ActionSequencer {
+
+  enum Action { START, STOP }
+
+  private static final class PendingAction {
+    final Action action;
+    final CompletableFuture<Void> previous;
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    PendingAction(Action action, CompletableFuture<Void> previous) {
+      this.action = action;
+      this.previous = previous;
+    }
+  }
+
+  // serverName -> most recently submitted action (the tail of that server's chain)
+  private final ConcurrentMap<String, PendingAction> tails = new ConcurrentHashMap<>();
+
+  /**
+   * Result of a submit: the future to hand back and whether it was shared with an earlier caller.
+   */
+  static final class Submission {
+    final CompletableFuture<Void> future;
+    final boolean joined;
+    final boolean queuedBehindOther;
+
+    Submission(CompletableFuture<Void> future, boolean joined, boolean queuedBehindOther) {
+      this.future = future;
+      this.joined = joined;
+      this.queuedBehindOther = queuedBehindOther;
+    }
+  }
+
+  Submission submit(String server, Action action, Supplier<CompletableFuture<Void>> send) {
+    PendingAction[] created = new PendingAction[1];
+    PendingAction tail = tails.compute(server, (k, cur) -> {
+      if (cur != null && cur.action == action) return cur;
+      created[0] = new PendingAction(action, cur == null ? null : cur.future);
+      return created[0];
+    });
+    if (tail != created[0]) {
+      return new Submission(tail.future, true, false);
+    }
+
+    // run the previous action to completion (success or not) before sending ours
+    CompletableFuture<Void> gate = (tail.previous == null)
+      ? CompletableFuture.completedFuture(null)
+      : tail.previous.handle((v, ex) -> null);
+    gate.thenCompose(v -> send.get()).whenComplete((v, ex) -> {
+      tails.remove(server, tail);
+      if (ex != null) {
+        tail.future.completeExceptionally(ex);
+      } else {
+        tail.future.complete(null);
+      }
+    });
+    return new Submission(tail.future, false, tail.previous != null);
+  }
+
+  boolean isPending(String server, Action action) {
+    PendingAction tail = tails.get(server);
+    return tail != null && tail.action == action;
+  }
+}
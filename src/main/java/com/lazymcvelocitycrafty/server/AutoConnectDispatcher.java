@@ -0,0 +1,103 @@
+package com.lazymcvelocitycrafty.server;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains a server's pending-player queue into connection requests as soon as the backend
+ * becomes ONLINE, and tells queued players when a start did not come through.
+ */
+public class AutoConnectDispatcher implements BackendStateRegistry.StateListener {
+
+  private final ProxyServer proxy;
+  private final ServerManager serverManager;
+  private final Logger logger;
+
+  public AutoConnectDispatcher(ProxyServer proxy, ServerManager serverManager, Logger logger) {
+    this.proxy = proxy;
+    this.serverManager = serverManager;
+    this.logger = logger;
+  }
+
+  @Override
+  public void onStateChange(String server, ServerState from, ServerState to) {
+    if (to == ServerState.ONLINE) {
+      dispatch(server);
+    } else if (from == ServerState.STARTING && to == ServerState.OFFLINE) {
+      failPending(server, "did not come online in time");
+    }
+  }
+
+  /**
+   * Connect every queued player for this server. Players who left the proxy or already reached
+   * the server on their own are skipped.
+   */
+  public void dispatch(String server) {
+    List<UUID> queued = serverManager.drainPendingPlayers(server);
+    if (queued.isEmpty()) return;
+
+    Optional<RegisteredServer> target = proxy.getServer(server);
+    if (target.isEmpty()) {
+      logger.warn("Cannot auto-connect {} queued players: {} is not registered with Velocity", queued.size(), server);
+      return;
+    }
+
+    AtomicInteger connected = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    int skipped = 0;
+    CompletableFuture<?>[] attempts = new CompletableFuture<?>[queued.size()];
+    int i = 0;
+    for (UUID id : queued) {
+      Optional<Player> playerOpt = proxy.getPlayer(id);
+      if (playerOpt.isEmpty() || isOn(playerOpt.get(), server)) {
+        skipped++;
+        attempts[i++] = CompletableFuture.completedFuture(null);
+        continue;
+      }
+      Player player = playerOpt.get();
+      attempts[i++] = player.createConnectionRequest(target.get()).connect().handle((result, ex) -> {
+        if (ex == null && result.isSuccessful()) {
+          connected.incrementAndGet();
+          return null;
+        }
+        failed.incrementAndGet();
+        String reason = (ex != null) ? ex.getMessage() : String.valueOf(result.getStatus());
+        logger.info("Auto-connect of {} to {} failed: {}", player.getUsername(), server, reason);
+        player.sendMessage(Component.text("Could not connect you to " + server + " automatically. Please try again.").color(NamedTextColor.RED));
+        return null;
+      });
+    }
+
+    int skippedCount = skipped;
+    CompletableFuture.allOf(attempts).thenRun(() ->
+      logger.info("Auto-connect for {}: {} connected, {} failed, {} skipped", server, connected.get(), failed.get(), skippedCount));
+  }
+
+  /**
+   * Drop everyone queued for this server and tell them it {@code reason}, e.g. "could not be started".
+   */
+  public void failPending(String server, String reason) {
+    List<UUID> queued = serverManager.drainPendingPlayers(server);
+    for (UUID id : queued) {
+      proxy.getPlayer(id).ifPresent(p ->
+        p.sendMessage(Component.text(server + " " + reason + ".").color(NamedTextColor.RED)));
+    }
+    if (!queued.isEmpty()) {
+      logger.warn("{} {}; dropped {} queued players", server, reason, queued.size());
+    }
+  }
+
+  private static boolean isOn(Player player, String server) {
+    return player.getCurrentServer().map(c -> c.getServerInfo().getName().equals(server)).orElse(false);
+  }
+}
@@ -0,0 +1,196 @@
+package com.lazymcvelocitycrafty.server;
+
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Cached per-backend state (OFFLINE / STARTING / ONLINE / STOPPING).
+ *
+ * Reads are a single map lookup and never block. The cache is kept fresh by async pings
+ * ({@link #probe}/{@link #probeAll}) and by lifecycle hints from ServerManager and listeners.
+ */
+public class BackendStateRegistry {
+
+  /**
+   * Notified after a backend's cached state changed. Called on whichever thread applied the change
+   * (probe completion, HTTP callback, event thread), so implementations must not block.
+   */
+  @FunctionalInterface
+  public interface StateListener {
+    void onStateChange(String server, ServerState from, ServerState to);
+  }
+
+  private final ProxyServer proxy;
+  private final PluginConfig config;
+  private final Logger logger;
+
+  private final ConcurrentMap<String, BackendStatus> states = new ConcurrentHashMap<>();
+  // at most one outstanding ping per server; concurrent callers share it
+  private final ConcurrentMap<String, CompletableFuture<Boolean>> inFlightProbes = new ConcurrentHashMap<>();
+  private final List<StateListener> listeners = new CopyOnWriteArrayList<>();
+  private final List<BiConsumer<String, ServerPing>> pingListeners = new CopyOnWriteArrayList<>();
+  private final Metrics.CounterFamily probes;
+
+  public BackendStateRegistry(ProxyServer proxy, PluginConfig config, Metrics metrics, Logger logger) {
+    this.proxy = proxy;
+    this.config = config;
+    this.logger = logger;
+    this.probes = metrics.counter("lazymc_probes_total", "Backend status pings sent", "server", "result");
+  }
+
+  public void addListener(StateListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Receives the full response of every successful probe ping, on the probe's completion thread.
+   */
+  public void addPingListener(BiConsumer<String, ServerPing> listener) {
+    pingListeners.add(listener);
+  }
+
+  public BackendStatus getStatus(String name) {
+    return states.getOrDefault(name, BackendStatus.UNKNOWN);
+  }
+
+  public ServerState getState(String name) {
+    return getStatus(name).getState();
+  }
+
+  public boolean isOnline(String name) {
+    return getState(name) == ServerState.ONLINE;
+  }
+
+  /**
+   * Record a lifecycle transition that did not come from a probe (start/stop requested,
+   * player connected, ...).
+   */
+  public void transition(String name, ServerState next) {
+    long now = System.currentTimeMillis();
+    BackendStatus[] prev = new BackendStatus[1];
+    BackendStatus cur = states.compute(name, (k, old) -> {
+      prev[0] = (old == null) ? BackendStatus.UNKNOWN : old;
+      return prev[0].withState(next, now);
+    });
+    fireIfChanged(name, prev[0], cur);
+  }
+
+  /**
+   * Seed a backend's state from a previous run (state journal) without notifying listeners.
+   * Ignored if the backend already has a state in this run, or if it was STOPPING (that stop's
+   * outcome is unknown, so it starts unknown and is probed); returns whether it was applied.
+   */
+  public boolean restore(String name, ServerState state, long sinceMillis) {
+    if (state == ServerState.STOPPING) return false;
+    return states.putIfAbsent(name, new BackendStatus(state, sinceMillis, 0L)) == null;
+  }
+
+  /**
+   * Async ping of a single backend. Never blocks the caller; the returned future completes with
+   * the probe result once the cached state has been updated.
+   */
+  public CompletableFuture<Boolean> probe(String name) {
+    Optional<RegisteredServer> rs = proxy.getServer(name);
+    if (rs.isEmpty()) {
+      return CompletableFuture.completedFuture(false);
+    }
+    CompletableFuture<Boolean> created = new CompletableFuture<>();
+    CompletableFuture<Boolean> existing = inFlightProbes.putIfAbsent(name, created);
+    if (existing != null) {
+      return existing;
+    }
+
+    rs.get().ping()
+      .orTimeout(config.getProbeTimeoutMillis(), TimeUnit.MILLISECONDS)
+      .handle((ping, ex) -> {
+        if (ex != null || ping == null) return false;
+        for (BiConsumer<String, ServerPing> l : pingListeners) {
+          try {
+            l.accept(name, ping);
+          } catch (Exception listenerEx) {
+            logger.warn("Ping listener failed for {}: {}", name, listenerEx.getMessage());
+          }
+        }
+        return true;
+      })
+      .thenAccept(ok -> {
+        probes.labels(name, ok ? "success" : "failure").inc();
+        applyProbe(name, ok);
+        inFlightProbes.remove(name, created);
+        created.complete(ok);
+      });
+    return created;
+  }
+
+  /**
+   * Fire async probes for every managed server.
+   */
+  public void probeAll() {
+    for (String name : config.getManagedServers()) {
+      probe(name);
+    }
+  }
+
+  private void applyProbe(String name, boolean reachable) {
+    observe(name, reachable ? ServerState.ONLINE : ServerState.OFFLINE);
+  }
+
+  /**
+   * Apply an external observation (ping result, Crafty status poll) to the cached state.
+   * Observations are hints: a STOPPING backend may still answer, and a STARTING backend may look
+   * OFFLINE, for up to max_start_wait_seconds each. Past that the observation wins, so a stop that
+   * never took effect does not leave a running backend STOPPING forever.
+   */
+  public void observe(String name, ServerState observed) {
+    long now = System.currentTimeMillis();
+    long graceMillis = config.getMaxStartWaitSeconds() * 1000L;
+    BackendStatus[] prev = new BackendStatus[1];
+    BackendStatus cur = states.compute(name, (k, old) -> {
+      BackendStatus base = (old == null) ? BackendStatus.UNKNOWN : old;
+      prev[0] = base;
+      ServerState current = base.getState();
+      boolean inGrace = now - base.getSinceMillis() < graceMillis;
+      ServerState next;
+      switch (observed) {
+        case ONLINE:
+          // a backend still answering while stopping is saving worlds; keep it STOPPING
+          next = (current == ServerState.STOPPING && inGrace) ? ServerState.STOPPING : ServerState.ONLINE;
+          break;
+        case STARTING:
+          next = (current == ServerState.ONLINE || current == ServerState.STOPPING) ? current : ServerState.STARTING;
+          break;
+        default:
+          next = (current == ServerState.STARTING && inGrace) ? ServerState.STARTING : ServerState.OFFLINE;
+          break;
+      }
+      return base.withProbe(next, now);
+    });
+    fireIfChanged(name, prev[0], cur);
+  }
+
+  private void fireIfChanged(String name, BackendStatus prev, BackendStatus cur) {
+    ServerState before = prev.getState();
+    if (before == cur.getState()) return;
+    logger.debug("Backend {} state {} -> {}", name, before, cur.getState());
+    for (StateListener l : listeners) {
+      try {
+        l.onStateChange(name, before, cur.getState());
+      } catch (Exception ex) {
+        logger.warn("State listener failed for {}: {}", name, ex.getMessage());
+      }
+    }
+  }
+}
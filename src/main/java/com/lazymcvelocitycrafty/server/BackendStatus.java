@@ -0,0 +1,35 @@
+package com.lazymcvelocitycrafty.server;
+
+/**
+ * Immutable snapshot of a backend's cached state. Replaced as a whole on every update so readers
+ * never see a half-written entry.
+ */
+public final class BackendStatus {
+
+  public static final BackendStatus UNKNOWN = new BackendStatus(ServerState.OFFLINE, 0L, 0L);
+
+  private final ServerState state;
+  private final long sinceMillis;
+  private final long lastProbeMillis;
+
+  public BackendStatus(ServerState state, long sinceMillis, long lastProbeMillis) {
+    this.state = state;
+    this.sinceMillis = sinceMillis;
+    this.lastProbeMillis = lastProbeMillis;
+  }
+
+  public ServerState getState() { return state; }
+  // wall-clock millis of the last state change
+  public long getSinceMillis() { return sinceMillis; }
+  // wall-clock millis of the last completed probe (0 = never probed)
+  public long getLastProbeMillis() { return lastProbeMillis; }
+
+  BackendStatus withState(ServerState next, long now) {
+    if (next == state) return this;
+    return new BackendStatus(next, now, lastProbeMillis);
+  }
+
+  BackendStatus withProbe(ServerState next, long now) {
+    return new BackendStatus(next, next == state ? sinceMillis : now, now);
+  }
+}
@@ -0,0 +1,143 @@
+package com.lazymcvelocitycrafty.server;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.util.AtomicFiles;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import com.velocitypowered.api.util.Favicon;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import org.slf4j.Logger;
+
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last server-list status seen per backend (MOTD, version, max players, favicon), so proxy pings
+ * can be answered without touching the backend.
+ *
+ * Snapshots come for free from the background probes, which already ping every backend. A ping
+ * for an ONLINE server whose snapshot is older than ping.refresh_seconds triggers at most one
+ * extra probe per server per interval; the answer never waits for it. Snapshots are kept in
+ * ping-cache.json so sleeping servers still show their version after a proxy restart.
+ */
+public class PingStatusCache {
+
+  private static final Type FILE_TYPE = new TypeToken<Map<String, Snapshot>>() {}.getType();
+
+  private final Path file;
+  private final BackendStateRegistry states;
+  private final PluginConfig config;
+  private final Logger logger;
+  private final Gson gson = new Gson();
+  private final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+  // serverName -> last time a refresh probe was sent for a ping
+  private final ConcurrentMap<String, AtomicLong> lastRefresh = new ConcurrentHashMap<>();
+
+  /**
+   * One backend's status; also the on-disk layout. Never mutated once published.
+   */
+  public static final class Snapshot {
+    String versionName;
+    int protocol;
+    int maxPlayers;
+    // Adventure JSON
+    String description;
+    // data:image/png;base64,...
+    String favicon;
+    long atMillis;
+
+    public ServerPing.Version getVersion() {
+      return new ServerPing.Version(protocol, versionName);
+    }
+
+    public int getMaxPlayers() {
+      return maxPlayers;
+    }
+
+    public Component getDescription() {
+      return (description == null) ? Component.empty() : GsonComponentSerializer.gson().deserialize(description);
+    }
+
+    public Favicon getFavicon() {
+      return (favicon == null) ? null : new Favicon(favicon);
+    }
+
+    public long getAtMillis() {
+      return atMillis;
+    }
+  }
+
+  public PingStatusCache(Path dataDirectory, BackendStateRegistry states, PluginConfig config, Logger logger) {
+    this.file = dataDirectory.resolve("ping-cache.json");
+    this.states = states;
+    this.config = config;
+    this.logger = logger;
+  }
+
+  public void load() {
+    if (!Files.exists(file)) return;
+    try (Reader r = Files.newBufferedReader(file)) {
+      Map<String, Snapshot> stored = gson.fromJson(r, FILE_TYPE);
+      if (stored == null) return;
+      stored.forEach((name, s) -> {
+        if (s != null && s.versionName != null) snapshots.put(name, s);
+      });
+    } catch (Exception ex) {
+      logger.warn("Failed to read ping-cache.json, starting without cached server status: {}", ex.getMessage());
+    }
+  }
+
+  public synchronized void save() {
+    try {
+      AtomicFiles.writeString(file, gson.toJson(new TreeMap<>(snapshots)));
+    } catch (Exception ex) {
+      logger.error("Failed to save ping-cache.json", ex);
+    }
+  }
+
+  /**
+   * Store the status from a successful backend ping.
+   */
+  public void record(String server, ServerPing ping) {
+    Snapshot s = new Snapshot();
+    s.versionName = ping.getVersion().getName();
+    s.protocol = ping.getVersion().getProtocol();
+    s.maxPlayers = ping.getPlayers().map(ServerPing.Players::getMax).orElse(0);
+    s.description = GsonComponentSerializer.gson().serialize(ping.getDescriptionComponent());
+    s.favicon = ping.getFavicon().map(Favicon::getBase64Url).orElse(null);
+    s.atMillis = System.currentTimeMillis();
+    snapshots.put(server, s);
+  }
+
+  /**
+   * Cached status, or null if this backend was never seen up.
+   */
+  public Snapshot get(String server) {
+    return snapshots.get(server);
+  }
+
+  /**
+   * Probe an ONLINE backend in the background if its snapshot is stale, at most once per
+   * ping.refresh_seconds no matter how many pings arrive. Never blocks.
+   */
+  public void refreshIfStale(String server) {
+    if (!states.isOnline(server)) return;
+    long now = System.currentTimeMillis();
+    long interval = Math.max(1, config.getPingRefreshSeconds()) * 1000L;
+    Snapshot s = snapshots.get(server);
+    if (s != null && now - s.atMillis < interval) return;
+    AtomicLong last = lastRefresh.computeIfAbsent(server, k -> new AtomicLong());
+    long prev = last.get();
+    if (now - prev < interval || !last.compareAndSet(prev, now)) return;
+    states.probe(server);
+  }
+}
@@ -0,0 +1,121 @@
+package com.lazymcvelocitycrafty.server;
+
+import com.velocitypowered.api.proxy.Player;
+import org.slf4j.Logger;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Which player is on which backend, maintained incrementally from connection events so per-server
+ * counts and member lists cost O(1) / O(members) instead of a scan over every online player.
+ *
+ * Events can be missed (e.g. a plugin reload mid-session), so {@link #reconcile} periodically
+ * compares against the proxy's own view and repairs any drift. Writes take the index lock so a
+ * player's location and the per-server sets always agree; reads do not lock.
+ */
+public class PlayerPresenceIndex {
+
+  private final Logger logger;
+
+  // player -> backend they are currently on
+  private final ConcurrentMap<UUID, String> locations = new ConcurrentHashMap<>();
+  // backend -> players currently on it
+  private final ConcurrentMap<String, Set<UUID>> members = new ConcurrentHashMap<>();
+  // drift seen by the previous reconcile: player -> backend the proxy reported, OFFLINE if none
+  private Map<UUID, String> suspects = Map.of();
+
+  private static final String OFFLINE = "";
+
+  public PlayerPresenceIndex(Logger logger) {
+    this.logger = logger;
+  }
+
+  public synchronized void connected(UUID player, String server) {
+    String prev = locations.put(player, server);
+    if (prev != null && !prev.equals(server)) {
+      removeMember(prev, player);
+    }
+    members.computeIfAbsent(server, k -> ConcurrentHashMap.newKeySet()).add(player);
+  }
+
+  public synchronized void disconnected(UUID player) {
+    String prev = locations.remove(player);
+    if (prev != null) {
+      removeMember(prev, player);
+    }
+  }
+
+  public int getPlayerCount(String server) {
+    Set<UUID> set = members.get(server);
+    return (set == null) ? 0 : set.size();
+  }
+
+  /**
+   * Live, unmodifiable view of the players on a backend.
+   */
+  public Set<UUID> getMembers(String server) {
+    Set<UUID> set = members.get(server);
+    return (set == null) ? Set.of() : Collections.unmodifiableSet(set);
+  }
+
+  /**
+   * Repair the index against the proxy's authoritative player list. Returns the number of
+   * corrected entries.
+   *
+   * The list is a snapshot that connection events can overtake (a player who joins or switches
+   * right after it was taken), so an entry is only corrected when the previous pass saw the same
+   * drift too.
+   */
+  public int reconcile(Collection<Player> online) {
+    Map<UUID, String> truth = new HashMap<>();
+    for (Player p : online) {
+      p.getCurrentServer().ifPresent(c -> truth.put(p.getUniqueId(), c.getServerInfo().getName()));
+    }
+
+    int fixed = 0;
+    synchronized (this) {
+      Map<UUID, String> drift = new HashMap<>();
+      for (Map.Entry<UUID, String> e : truth.entrySet()) {
+        if (!e.getValue().equals(locations.get(e.getKey()))) {
+          drift.put(e.getKey(), e.getValue());
+        }
+      }
+      for (UUID id : locations.keySet()) {
+        if (!truth.containsKey(id)) {
+          drift.put(id, OFFLINE);
+        }
+      }
+      Map<UUID, String> unconfirmed = new HashMap<>();
+      for (Map.Entry<UUID, String> e : drift.entrySet()) {
+        if (!e.getValue().equals(suspects.get(e.getKey()))) {
+          unconfirmed.put(e.getKey(), e.getValue());
+        } else if (e.getValue().equals(OFFLINE)) {
+          disconnected(e.getKey());
+          fixed++;
+        } else {
+          connected(e.getKey(), e.getValue());
+          fixed++;
+        }
+      }
+      suspects = unconfirmed;
+    }
+    if (fixed > 0) {
+      logger.debug("Player presence index drifted; corrected {} entries", fixed);
+    }
+    return fixed;
+  }
+
+  private void removeMember(String server, UUID player) {
+    Set<UUID> set = members.get(server);
+    if (set != null) {
+      set.remove(player);
+    }
+  }
+}
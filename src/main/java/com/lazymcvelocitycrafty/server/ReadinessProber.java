@@ -0,0 +1,220 @@
+package com.lazymcvelocitycrafty.server;
+
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One probe loop per server, shared by everyone waiting for it to come online.
+ *
+ * Cadence: with a known boot time the loop probes sparsely until ~80% of it has elapsed, fast
+ * around the expected moment, then backs off exponentially. Without history it probes fast for
+ * the first 10s and then backs off. Pings are async with probe_timeout_millis, so a slow backend
+ * never holds up the scheduler thread or another server's loop.
+ *
+ * Boot samples are timed from the STARTING transition, whenever the loop was created, and written
+ * to boot-stats.json coalesced on the scheduler rather than on the ping-completion thread.
+ */
+public class ReadinessProber implements BackendStateRegistry.StateListener {
+
+  private static final long NO_HISTORY_FAST_WINDOW_MILLIS = 10_000L;
+  private static final long SAVE_DELAY_MILLIS = 1000L;
+
+  private final BackendStateRegistry states;
+  private final ScheduledExecutorService scheduler;
+  private final PluginConfig config;
+  private final Logger logger;
+  private final StartupStats stats;
+  private final Metrics.HistogramFamily coldStarts;
+
+  private final ConcurrentMap<String, ProbeLoop> loops = new ConcurrentHashMap<>();
+  private final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+  public ReadinessProber(BackendStateRegistry states, ScheduledExecutorService scheduler, PluginConfig config,
+                         StartupStats stats, Metrics metrics, Logger logger) {
+    this.states = states;
+    this.scheduler = scheduler;
+    this.config = config;
+    this.stats = stats;
+    this.logger = logger;
+    this.coldStarts = metrics.histogram("lazymc_cold_start_seconds",
+      "Time from accepted start request to first successful ping", Metrics.COLD_START_SECONDS, "server");
+  }
+
+  /**
+   * Completes with true once the server is ONLINE, or false when timeoutMillis passes first.
+   */
+  public CompletableFuture<Boolean> awaitOnline(String server, long timeoutMillis) {
+    if (states.isOnline(server)) {
+      return CompletableFuture.completedFuture(true);
+    }
+    Waiter waiter = new Waiter(System.currentTimeMillis() + timeoutMillis);
+    boolean[] created = new boolean[1];
+    ProbeLoop loop = loops.compute(server, (k, cur) -> {
+      if (cur == null || !cur.add(waiter)) {
+        ProbeLoop fresh = new ProbeLoop(server);
+        fresh.add(waiter);
+        created[0] = true;
+        return fresh;
+      }
+      return cur;
+    });
+    if (created[0]) {
+      loop.tick();
+    }
+    return waiter.future;
+  }
+
+  /**
+   * Smoothed historical boot time, or -1 if this server has never been seen starting.
+   */
+  public long getExpectedBootMillis(String server) {
+    return stats.getExpectedMillis(server);
+  }
+
+  /**
+   * A loop created before the start went out (e.g. a held connect) learns here when booting began.
+   */
+  @Override
+  public void onStateChange(String server, ServerState from, ServerState to) {
+    if (to != ServerState.STARTING) return;
+    ProbeLoop loop = loops.get(server);
+    if (loop != null) {
+      loop.bootStartedAt = states.getStatus(server).getSinceMillis();
+    }
+  }
+
+  private void recordBoot(String server, long millis) {
+    stats.record(server, millis);
+    scheduleSave();
+    coldStarts.labels(server).observe(millis / 1000.0);
+    logger.info("{} came online after {} ms (expected now ~{} ms)", server, millis, getExpectedBootMillis(server));
+  }
+
+  private void scheduleSave() {
+    if (!saveScheduled.compareAndSet(false, true)) return;
+    try {
+      scheduler.schedule(() -> {
+        saveScheduled.set(false);
+        stats.save();
+      }, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (Exception ex) {
+      // scheduler already shut down; ServerManager.shutdown saves the stats anyway
+      saveScheduled.set(false);
+    }
+  }
+
+  private static final class Waiter {
+    final long deadline;
+    final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+    Waiter(long deadline) {
+      this.deadline = deadline;
+    }
+  }
+
+  private final class ProbeLoop {
+    final String server;
+    final long startedAt = System.currentTimeMillis();
+    // only a loop that saw the server booting can measure a boot duration; set on STARTING if it was created earlier
+    volatile long bootStartedAt;
+    final List<Waiter> waiters = new ArrayList<>();
+    boolean closed;
+    int backoffStep;
+
+    ProbeLoop(String server) {
+      this.server = server;
+      BackendStatus status = states.getStatus(server);
+      this.bootStartedAt = (status.getState() == ServerState.STARTING) ? status.getSinceMillis() : -1L;
+    }
+
+    synchronized boolean add(Waiter w) {
+      if (closed) return false;
+      waiters.add(w);
+      return true;
+    }
+
+    void tick() {
+      states.probe(server).thenAccept(ok -> {
+        if (ok || states.isOnline(server)) {
+          finish(true);
+          return;
+        }
+        if (expireWaiters()) {
+          scheduler.schedule(this::tick, nextDelay(), TimeUnit.MILLISECONDS);
+        }
+      });
+    }
+
+    // drops waiters past their deadline; returns whether the loop should keep running
+    private boolean expireWaiters() {
+      long now = System.currentTimeMillis();
+      List<Waiter> expired = new ArrayList<>();
+      synchronized (this) {
+        waiters.removeIf(w -> {
+          if (w.deadline <= now) {
+            expired.add(w);
+            return true;
+          }
+          return false;
+        });
+        if (waiters.isEmpty()) {
+          closed = true;
+        }
+      }
+      expired.forEach(w -> w.future.complete(false));
+      if (closed) {
+        loops.remove(server, this);
+        return false;
+      }
+      return true;
+    }
+
+    private void finish(boolean online) {
+      List<Waiter> done;
+      synchronized (this) {
+        closed = true;
+        done = new ArrayList<>(waiters);
+        waiters.clear();
+      }
+      loops.remove(server, this);
+      if (online && bootStartedAt > 0) {
+        recordBoot(server, System.currentTimeMillis() - bootStartedAt);
+      }
+      done.forEach(w -> w.future.complete(online));
+    }
+
+    private long nextDelay() {
+      long fast = Math.max(100, config.getProbeFastIntervalMillis());
+      long max = Math.max(fast, config.getProbeMaxIntervalMillis());
+      long elapsed = System.currentTimeMillis() - (bootStartedAt > 0 ? bootStartedAt : startedAt);
+      long expected = getExpectedBootMillis(server);
+
+      long fastUntil;
+      if (expected > 0) {
+        long lead = (long) (expected * 0.8) - elapsed;
+        if (lead > fast) {
+          // still early: halve the remaining distance instead of probing a server that cannot be up yet
+          return Math.min(max, Math.max(fast, lead / 2));
+        }
+        fastUntil = (long) (expected * 1.5);
+      } else {
+        fastUntil = NO_HISTORY_FAST_WINDOW_MILLIS;
+      }
+      if (elapsed < fastUntil) {
+        return fast;
+      }
+      backoffStep = Math.min(backoffStep + 1, 16);
+      return Math.min(max, fast << backoffStep);
+    }
+  }
+}
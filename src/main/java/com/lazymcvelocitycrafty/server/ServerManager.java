@@ -1,39 +1,185 @@
 package com.lazymcvelocitycrafty.server;
 
 import com.lazymcvelocitycrafty.LazyMCVelocityCrafty;
+import com.lazymcvelocitycrafty.config.ConfigDiff;
 import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.config.ServerSettings;
+import com.lazymcvelocitycrafty.controller.CraftyController;
+import com.lazymcvelocitycrafty.controller.LocalProcessController;
+import com.lazymcvelocitycrafty.controller.ServerController;
+import com.lazymcvelocitycrafty.crafty.CircuitBreaker;
+import com.lazymcvelocitycrafty.crafty.CraftyClient;
+import com.lazymcvelocitycrafty.crafty.CraftyClientPool;
+import com.lazymcvelocitycrafty.crafty.CraftyStatusPoller;
+import com.lazymcvelocitycrafty.metrics.Metrics;
 import org.slf4j.Logger;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.*;
 
 /**
- * Controls start/stop requests to Crafty v2 API and tracks pending connection queues.
+ * Controls start/stop requests (through each server's ServerController: Crafty v2 API or a local
+ * process) and tracks pending connection queues.
  */
 public class ServerManager {
   
   private final LazyMCVelocityCrafty plugin;
   private final PluginConfig config;
   private final Logger logger;
-  private final HttpClient http;
+  private final CraftyClientPool crafty;
+  // driver id -> controller
+  private final Map<String, ServerController> controllers;
+  private final BackendStateRegistry states;
+  private final AutoConnectDispatcher dispatcher;
+  private final ReadinessProber prober;
+  private final PlayerPresenceIndex presence;
+  private final StartScheduler startScheduler;
+  private final StartupStats startupStats;
+  private final StartProgressNotifier progress;
+  private final StateJournal journal;
+  private final PingStatusCache pingCache;
 
   // pending players per server - plugin may use this to auto-connect when ready
   private final ConcurrentMap<String, CopyOnWriteArrayList<java.util.UUID>> pendingPlayers = new ConcurrentHashMap<>();
   private final ScheduledExecutorService poller = Executors.newScheduledThreadPool(1);
+  // coalesces concurrent start/stop calls per server
+  private final ActionSequencer actions = new ActionSequencer();
 
   //Your guess is as good as mine. (Maybe I just need to actually learn java)
-  public ServerManager(LazyMCVelocityCrafty plugin, PluginConfig config, Logger logger) {
+  public ServerManager(LazyMCVelocityCrafty plugin, PluginConfig config, Metrics metrics, Logger logger) {
     this.plugin = plugin;
     this.config = config;
     this.logger = logger;
-    this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    this.crafty = new CraftyClientPool(config, metrics, logger);
+    this.states = new BackendStateRegistry(plugin.getProxy(), config, metrics, logger);
+    this.controllers = Map.of(
+      ServerSettings.DRIVER_CRAFTY, new CraftyController(crafty, config, logger),
+      ServerSettings.DRIVER_LOCAL, new LocalProcessController(config, states, poller, logger));
+    this.dispatcher = new AutoConnectDispatcher(plugin.getProxy(), this, logger);
+    states.addListener(dispatcher);
+    this.startupStats = new StartupStats(plugin.getDataDirectory(), logger);
+    startupStats.load();
+    this.prober = new ReadinessProber(states, poller, config, startupStats, metrics, logger);
+    states.addListener(prober);
+    this.presence = new PlayerPresenceIndex(logger);
+    this.startScheduler = new StartScheduler(config, states, prober, this::getPendingCount, poller, logger);
+    states.addListener(startScheduler);
+    this.progress = new StartProgressNotifier(plugin.getProxy(), this, config, startupStats, poller);
+    states.addListener(progress);
+    this.pingCache = new PingStatusCache(plugin.getDataDirectory(), states, config, logger);
+    pingCache.load();
+    states.addPingListener(pingCache::record);
+    registerMetrics(metrics);
+
+    // best-known states from the last run, so early joins neither wait on pings nor re-start running servers
+    this.journal = new StateJournal(plugin.getDataDirectory(), poller, logger);
+    journal.load();
+    journal.restoreInto(states, config.getManagedServers());
+    states.addListener(journal);
+
+    // keep the cached state fresh in the background, either from Crafty's stats or from async pings;
+    // neither blocks this thread. The first sweep runs immediately and reconciles the journal.
+    if (config.isCraftyStatusPoll()) {
+      CraftyStatusPoller statusPoller = new CraftyStatusPoller(crafty, config, states, logger);
+      long pollInterval = Math.max(1, config.getCraftyStatusPollIntervalSeconds());
+      poller.scheduleAtFixedRate(statusPoller::sweep, 0, pollInterval, TimeUnit.SECONDS);
+    } else {
+      long probeInterval = Math.max(1, config.getProbeIntervalSeconds());
+      poller.scheduleAtFixedRate(states::probeAll, 0, probeInterval, TimeUnit.SECONDS);
+    }
+    // the presence index is event-driven; this only catches missed events
+    long reconcileInterval = Math.max(5, config.getPresenceReconcileSeconds());
+    poller.scheduleAtFixedRate(() -> presence.reconcile(plugin.getProxy().getAllPlayers()),
+      reconcileInterval, reconcileInterval, TimeUnit.SECONDS);
+    config.addReloadListener(this::onConfigReload);
+  }
+
+  /**
+   * A server dropped by a reload leaves nothing waiting on it: queued players are told, and its
+   * progress task and any start still waiting for a boot slot go away.
+   */
+  private void onConfigReload(ConfigDiff diff) {
+    for (String server : diff.removed()) {
+      dispatcher.failPending(server, "was removed from the configuration");
+      progress.cancel(server);
+      startScheduler.remove(server);
+    }
+  }
+
+  private void registerMetrics(Metrics metrics) {
+    metrics.gaugeFamily("lazymc_pending_players", "Players queued for auto-connect",
+      () -> perServer(name -> getPendingCount(name)), "server");
+    metrics.gaugeFamily("lazymc_server_players", "Players on each managed backend",
+      () -> perServer(name -> getPlayerCount(name)), "server");
+    metrics.gaugeFamily("lazymc_server_online", "1 if the cached state is ONLINE",
+      () -> perServer(name -> states.isOnline(name) ? 1 : 0), "server");
+    metrics.gaugeFamily("lazymc_server_uptime_seconds", "Seconds since the backend was last seen coming ONLINE (0 when not online)",
+      () -> perServer(name -> {
+        BackendStatus st = states.getStatus(name);
+        return (st.getState() == ServerState.ONLINE) ? (System.currentTimeMillis() - st.getSinceMillis()) / 1000.0 : 0;
+      }), "server");
+    metrics.gauge("lazymc_start_queue_depth", "Starts waiting for a boot slot", startScheduler::getQueueDepth);
+    metrics.gaugeFamily("lazymc_crafty_in_flight", "Crafty API calls in flight per Crafty host",
+      () -> perHost(c -> c.getInFlight()), "host");
+    metrics.gaugeFamily("lazymc_crafty_queued", "Crafty API calls waiting for a concurrency slot per Crafty host",
+      () -> perHost(c -> c.getQueued()), "host");
+    metrics.gaugeFamily("lazymc_crafty_breaker_open", "1 while the Crafty host's circuit breaker is not closed",
+      () -> perHost(c -> c.getBreakerState() == CircuitBreaker.State.CLOSED ? 0 : 1), "host");
+
+    // cumulative ONLINE time; together with shutdown counts shows what idle shutdown saves
+    Metrics.CounterFamily onlineSeconds = metrics.counter("lazymc_server_online_seconds_total",
+      "Total seconds backends spent ONLINE", "server");
+    Map<String, Long> onlineSince = new ConcurrentHashMap<>();
+    states.addListener((server, from, to) -> {
+      long now = System.currentTimeMillis();
+      if (to == ServerState.ONLINE) onlineSince.put(server, now);
+      Long since = (from == ServerState.ONLINE) ? onlineSince.remove(server) : null;
+      if (since != null) onlineSeconds.labels(server).add((now - since) / 1000L);
+    });
+  }
+
+  private Map<List<String>, Number> perHost(java.util.function.Function<CraftyClient, Number> value) {
+    Map<List<String>, Number> out = new HashMap<>();
+    crafty.getClients().forEach((id, c) -> out.put(List.of(id), value.apply(c)));
+    return out;
+  }
+
+  private Map<List<String>, Number> perServer(java.util.function.Function<String, Number> value) {
+    Map<List<String>, Number> out = new HashMap<>();
+    for (String name : config.getManagedServers()) {
+      out.put(List.of(name), value.apply(name));
+    }
+    return out;
+  }
+
+  public CraftyClientPool getCrafty() {
+    return crafty;
+  }
+
+  public BackendStateRegistry getStates() {
+    return states;
+  }
+
+  public ReadinessProber getProber() {
+    return prober;
+  }
+
+  public PlayerPresenceIndex getPresence() {
+    return presence;
+  }
+
+  public StartScheduler getStartScheduler() {
+    return startScheduler;
+  }
+
+  public StartupStats getStartupStats() {
+    return startupStats;
+  }
+
+  public PingStatusCache getPingCache() {
+    return pingCache;
   }
   
   /**
@@ -44,110 +190,131 @@ public class ServerManager {
   }
 
   /**
-   * Non-blocking start via Crafty v2 API. Returns a CompletableFuture that completes when the POST
+   * Non-blocking start through the server's controller. Returns a CompletableFuture that completes when the POST
    * request has been sent and responded (not when the Minecraft server is fully online).
+   * Concurrent callers share one request; a start issued during a pending stop runs after it.
+   * The request itself waits for a boot slot on the StartScheduler.
    */
   public CompletableFuture<Void> startServer(String name) {
-    Optional<String> uuidOpt = config.getServerUuid(name);
-    if (uuidOpt.isEmpty) {
-      return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown server: " + name));
+    ActionSequencer.Submission sub = actions.submit(name, ActionSequencer.Action.START,
+      () -> awaitStopped(name).thenCompose(v -> startScheduler.submit(name, config.getControlHostId(name), () -> sendStart(name)))
+        .whenComplete((v, ex) -> {
+          // no STARTING -> OFFLINE will follow a start that never went out; fail the queue here
+          if (ex != null) dispatcher.failPending(name, "could not be started");
+        }));
+    if (sub.queuedBehindOther) {
+      logger.info("Start for {} queued behind in-flight stop", name);
     }
-    String uuid = uuidOpt.get();
-    String url = String.format("%s/api/v2/servers/%s/action/start_server", trimSlash(config.getCraftyHost()), uuid);
-
-    HttpRequest req = HttpRequest.newBuilder()
-      .uri(URI.create(url))
-      .timeout(Duration.ofSeconds(20))
-      .header("Content-Type", "application/json")
-      .header("Authorization", bearerHeader(config.getCraftyApiKey()))
-      .POST(HttpRequest.BodyPublishers.ofString("{}"))
-      .build();
-    
-    logger.info("Sending Crafty start request for {} -> {}", name, url);
-    return http.sendAsync(req, HttpResponse.BodyHandlers.ofString())
-      .thenAccept(resp -> {
-        if (resp.statusCode() / 100 == 2) {
-          logger.info("Crafty accepted start for {}", name);
-        } else {
-          logger.warn("Crafty start for {} returned status {}: {}", name, resp.statusCode(), resp.body());
-        }
-      });
+    return sub.future;
   }
 
   /**
-   * Stops a backend server via Crafty API.
+   * Stops a backend server through its controller. Coalesced the same way as {@link #startServer}.
    */
   public CompletableFuture<Void> stopServer(String name) {
-    Optional<String> uuidOpt = config.getServerUuid(name);
-    if (uuid.isEmpty()) {
-      return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown server: " + name));
+    ActionSequencer.Submission sub = actions.submit(name, ActionSequencer.Action.STOP, () -> sendStop(name));
+    if (sub.queuedBehindOther) {
+      logger.info("Stop for {} queued behind in-flight start", name);
     }
-    String uuid = uuidOpt.get();
-    String url = String.format("%s/api/v2/servers/%s/action/stop_server", trimSlash(config.getCraftyHost()), uuid);
-
-    HttpRequest req = HttpRequest.newBuilder()
-      .uri(URI.create(url))
-      .timeout(Duration.ofSeconds(20))
-      .header("Content-Type", "application/json")
-      .header("Authorization", bearerHeader(config.getCraftyApiKey()))
-      .POST(HttpRequest.BodyPublishers.ofString("{}"))
-      .build();
-
-    logger.info("Sending Crafty stop request for {} -> {}", name, url);
-    return http.sendAsync(req, HttpResponse.BodyHandlers.ofString())
-      .thenAccept(resp -> {
-        if (resp.statusCode() / 100 == 2) {
-          logger.info("Crafty accepted stop for {}", name);
-        } else {
-          logger.warn("Crafty stop for {} returned status {}: {}", name, resp.statusCode(), resp.body());
-        }
+    return sub.future;
+  }
+
+  public boolean isStartPending(String name) {
+    return actions.isPending(name, ActionSequencer.Action.START);
+  }
+
+  /**
+   * Crafty answers a stop before the backend has actually exited; a start sent in that window is
+   * rejected. Completes once the backend has left STOPPING (or max_start_wait_seconds passed).
+   */
+  private CompletableFuture<Void> awaitStopped(String name) {
+    if (states.getState(name) != ServerState.STOPPING) {
+      return CompletableFuture.completedFuture(null);
+    }
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    long deadline = System.currentTimeMillis() + config.getMaxStartWaitSeconds() * 1000L;
+    ScheduledFuture<?> task = poller.scheduleWithFixedDelay(() -> states.probe(name).thenRun(() -> {
+      if (states.getState(name) != ServerState.STOPPING || System.currentTimeMillis() > deadline) {
+        done.complete(null);
+      }
+    }), 1, 1, TimeUnit.SECONDS);
+    done.whenComplete((v, ex) -> task.cancel(false));
+    return done;
+  }
+
+  private CompletableFuture<Void> sendStart(String name) {
+    return controllerFor(name).start(name)
+      .thenRun(() -> {
+        if (!states.isOnline(name)) states.transition(name, ServerState.STARTING);
+        // probe fast while it boots so queued players are dispatched promptly
+        prober.awaitOnline(name, config.getMaxStartWaitSeconds() * 1000L);
+      })
+      .whenComplete((v, ex) -> {
+        if (ex != null) logger.warn("Start for {} failed: {}", name, ex.getMessage());
+      });
+  }
+
+  private CompletableFuture<Void> sendStop(String name) {
+    return controllerFor(name).stop(name)
+      .thenRun(() -> {
+        if (states.getState(name) != ServerState.OFFLINE) states.transition(name, ServerState.STOPPING);
+      })
+      .whenComplete((v, ex) -> {
+        if (ex != null) logger.warn("Stop for {} failed: {}", name, ex.getMessage());
       });
   }
+
+  /**
+   * Controller selected by the server's driver key.
+   */
+  public ServerController controllerFor(String name) {
+    ServerController c = controllers.get(config.getServer(name).driver());
+    return (c != null) ? c : controllers.get(ServerSettings.DRIVER_CRAFTY);
+  }
  
   /**
-   * Returns true if Velocity registers the server and its ping succeeds.
+   * Returns true if the cached state says the backend is ONLINE. Never pings; safe on the event thread.
    */
   public boolean isServerOnline(String name) {
-    return plugin.getProxy().getServer(name)
-      .map(rs -> {
-        try {
-          return rs.ping().join().isPresent();
-        } catch (Exception e) {
-          return false;
-        }
-      }).orElse(false);
+    return states.isOnline(name);
+  }
+
+  public ServerState getServerState(String name) {
+    return states.getState(name);
   }
 
   /**
-   * Waits for server to become online, up to timeout seconds (non-blocking).
+   * Waits for server to become online, up to timeout seconds (non-blocking). All waiters for the
+   * same server share one adaptive probe loop.
    */
-  public CompletableFuture<Boolean> waitForServerOnline(String name, int timeoutSeconds, int pollIntervalSeconds) {
-    CompletableFuture<Boolean> future = new CompletableFuture<>();
-    long deadline = System.currentTimeMillis() + timeoutSeconds * 1000L;
-
-    Runnable check = new Runnable() {
-      @Override
-      public void run() {
-        if (isServerOnline(name)) {
-          future.complete(true);
-        } else if (System.currentTimeMillis() > deadline) {
-          future.complete(false);
-        }
-      }
-    }
-
-    ScheduledFuture<?> task = poller.scheduleAtFixedRate(check, 0, Math.max(1, pollIntervalSeconds), TimeUnit.SECONDS);
-    future.whenComplete((ok, ex) -> task.cancel(true));
-    return future;
+  public CompletableFuture<Boolean> waitForServerOnline(String name, int timeoutSeconds) {
+    return prober.awaitOnline(name, timeoutSeconds * 1000L);
   }
 
   /**
-   * Helpers for pending players queue (we store UUIDs; plugin must map to Player when connecting)
+   * Helpers for pending players queue (we store UUIDs; AutoConnectDispatcher maps them to Players
+   * and connects them once the server is ONLINE)
    */
   public void addPendingPlayer(String serverName, java.util.UUID playerUuid) {
-    pendingPlayers.computeIfAbsent(serverName, k -> new CopyOnWriteArrayList<>()).add(playerUuid);
+    pendingPlayers.computeIfAbsent(serverName, k -> new CopyOnWriteArrayList<>()).addIfAbsent(playerUuid);
+    // the server may have come up between the caller's state check and now
+    if (states.isOnline(serverName)) {
+      dispatcher.dispatch(serverName);
+    } else {
+      progress.track(serverName);
+    }
   }
   
+  public int getPendingCount(String serverName) {
+    var list = pendingPlayers.get(serverName);
+    return (list == null) ? 0 : list.size();
+  }
+
+  public java.util.List<java.util.UUID> getPendingPlayers(String serverName) {
+    var list = pendingPlayers.get(serverName);
+    return (list == null) ? java.util.List.of() : java.util.Collections.unmodifiableList(list);
+  }
+
   public java.util.List<java.util.UUID> drainPendingPlayers(String serverName) {
     var list = pendingPlayers.remove(serverName);
     return (list == null) ? java.util.List.of() : java.util.List.copyOf(list);
@@ -155,9 +322,7 @@ public class ServerManager {
   
   // returns number of players on that backend (0 if not present)
   public int getPlayerCount(String serverName) {
-    return (int) plugin.getProxy().getAllPlayers().stream()
-      .filter(p -> p.getCurrentServer().map(c -> c.getServerInfo().getName().equals(serverName)).orElse(false))
-      .count();
+    return presence.getPlayerCount(serverName);
   }
   
   // move players to lobby - used when forcibly stopping with fallback
@@ -165,24 +330,16 @@ public class ServerManager {
     var lobby = plugin.getProxy().getServer(lobbyName);
     if (lobby.isEmpty()) return;
     var reg = lobby.get();
-    plugin.getProxy().getAllPlayers().stream()
-      .filter(p -> p.getCurrentServer().map(c -> c.getServerInfo().getName().equals(serverName)).orElse(false))
-      .forEach(p -> p.createConnectionRequest(reg).connect());
+    for (java.util.UUID id : java.util.List.copyOf(presence.getMembers(serverName))) {
+      plugin.getProxy().getPlayer(id).ifPresent(p -> p.createConnectionRequest(reg).connect());
+    }
   }
   
-  private static String bearerHeader(String key) {
-    if (key == null) return "";
-    if (key.startsWith("Bearer ")) return key;
-    return "Bearer " + key;
-  }
-
-  private static String trimSlash(String s) {
-    if (s == null) return "";
-    if (s.endsWith("/")) return s.substring(0, s.length() - 1);
-    return s;
-  }
-
   public void shutdown() {
+    controllers.values().forEach(ServerController::shutdown);
     poller.shutdownNow();
+    startupStats.save();
+    journal.save();
+    pingCache.save();
   }
 }
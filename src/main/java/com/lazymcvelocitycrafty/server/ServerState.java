@@ -0,0 +1,18 @@
+package com.lazymcvelocitycrafty.server;
+
+/**
+ * Lifecycle states of a managed backend as seen by the proxy.
+ *
+ *  - OFFLINE: not reachable and no start pending
+ *  - STARTING: start requested, waiting for the first successful probe
+ *  - ONLINE: last probe (or a player connection) succeeded
+ *  - STOPPING: stop requested, waiting for the backend to go away
+ */
+public enum ServerState {
+  OFFLINE,
+  STARTING,
+  ONLINE,
+  STOPPING;
+
+  public boolean isTransitional() { return this == STARTING || this == STOPPING; }
+}
@@ -0,0 +1,117 @@
+package com.lazymcvelocitycrafty.server;
+
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.velocitypowered.api.proxy.ProxyServer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps players in a server's pending queue informed while it boots: one repeating task per
+ * server renders a single action-bar line (queue position or ETA from StartupStats) and sends
+ * it to everyone queued. The task ends itself once the queue is empty or the boot resolved.
+ */
+public class StartProgressNotifier implements BackendStateRegistry.StateListener {
+
+  private static final int BAR_SEGMENTS = 10;
+
+  private final ProxyServer proxy;
+  private final ServerManager serverManager;
+  private final PluginConfig config;
+  private final StartupStats stats;
+  private final ScheduledExecutorService scheduler;
+
+  private final ConcurrentMap<String, ScheduledFuture<?>> tasks = new ConcurrentHashMap<>();
+
+  public StartProgressNotifier(ProxyServer proxy, ServerManager serverManager, PluginConfig config,
+                               StartupStats stats, ScheduledExecutorService scheduler) {
+    this.proxy = proxy;
+    this.serverManager = serverManager;
+    this.config = config;
+    this.stats = stats;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Make sure the server's progress task is running; no-op if it already is.
+   */
+  public void track(String server) {
+    long interval = config.getProgressIntervalSeconds();
+    if (interval <= 0) return;
+    tasks.computeIfAbsent(server, k -> scheduler.scheduleAtFixedRate(() -> tick(k), 0, interval, TimeUnit.SECONDS));
+  }
+
+  @Override
+  public void onStateChange(String server, ServerState from, ServerState to) {
+    // ONLINE hands over to AutoConnectDispatcher; a failed boot is reported there as well
+    if (to == ServerState.ONLINE || (from == ServerState.STARTING && to == ServerState.OFFLINE)) {
+      cancel(server);
+    }
+  }
+
+  /**
+   * Stop the server's progress task, if one runs.
+   */
+  public void cancel(String server) {
+    ScheduledFuture<?> task = tasks.remove(server);
+    if (task != null) task.cancel(false);
+  }
+
+  private void tick(String server) {
+    List<UUID> pending = serverManager.getPendingPlayers(server);
+    ServerState state = serverManager.getServerState(server);
+    if (pending.isEmpty() || state == ServerState.ONLINE
+      || (state == ServerState.OFFLINE && !serverManager.isStartPending(server))) {
+      cancel(server);
+      return;
+    }
+    Component line = render(server, state);
+    for (UUID id : pending) {
+      proxy.getPlayer(id).ifPresent(p -> p.sendActionBar(line));
+    }
+  }
+
+  private Component render(String server, ServerState state) {
+    long now = System.currentTimeMillis();
+    if (state != ServerState.STARTING) {
+      int position = serverManager.getStartScheduler().getQueuePosition(server);
+      if (position > 0) {
+        long wait = Math.max(0L, serverManager.getStartScheduler().getExpectedStartMillis(server) - now) / 1000L;
+        return Component.text(server + " is #" + position + " in the start queue, boot begins in ~" + wait + "s")
+          .color(NamedTextColor.GRAY);
+      }
+      String why = (state == ServerState.STOPPING) ? " is finishing a shutdown, restarting next" : " start requested...";
+      return Component.text(server + why).color(NamedTextColor.GRAY);
+    }
+
+    long elapsed = now - serverManager.getStates().getStatus(server).getSinceMillis();
+    long expected = stats.getExpectedMillis(server);
+    if (expected <= 0) {
+      return Component.text(server + " is starting... " + (elapsed / 1000L) + "s").color(NamedTextColor.YELLOW);
+    }
+    long remaining = expected - elapsed;
+    if (remaining > 0) {
+      return Component.text(server + " is starting " + bar(elapsed, expected) + " ~" + ((remaining + 999) / 1000L) + "s left")
+        .color(NamedTextColor.YELLOW);
+    }
+    // past the usual time: fall back to the slow end of recent boots before giving up on an estimate
+    long slow = stats.getPercentileMillis(server, 0.9);
+    if (slow > elapsed) {
+      return Component.text(server + " is taking longer than usual, up to ~" + ((slow - elapsed + 999) / 1000L) + "s more")
+        .color(NamedTextColor.GOLD);
+    }
+    return Component.text(server + " should be ready any moment now...").color(NamedTextColor.GOLD);
+  }
+
+  private static String bar(long elapsed, long expected) {
+    int filled = (int) Math.min(BAR_SEGMENTS - 1, elapsed * BAR_SEGMENTS / expected);
+    return "[" + "|".repeat(filled) + ".".repeat(BAR_SEGMENTS - filled) + "]";
+  }
+}
@@ -0,0 +1,254 @@
+package com.lazymcvelocitycrafty.server;
+
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Caps concurrent boots per host (a Crafty instance, or the proxy box for locally run servers) so
+ * a burst of start requests does not launch every JVM at once.
+ *
+ * Each server has a boot_cost; a host runs boots while their summed cost stays within
+ * that host's max_concurrent_boot_cost (a single over-sized server may still boot alone). Waiting
+ * starts are ordered by waiting players (most first), then by time queued. A boot slot is held
+ * from the start request until the server leaves STARTING, or max_start_wait_seconds passed.
+ */
+public class StartScheduler implements BackendStateRegistry.StateListener {
+
+  private static final long DEFAULT_BOOT_MILLIS = 60_000L;
+
+  private final PluginConfig config;
+  private final ReadinessProber prober;
+  private final BackendStateRegistry states;
+  private final ToIntFunction<String> waitingPlayers;
+  private final ScheduledExecutorService timer;
+  private final Logger logger;
+
+  private final ConcurrentMap<String, HostQueue> hosts = new ConcurrentHashMap<>();
+
+  private final class StartRequest {
+    final String server;
+    final String host;
+    final int cost;
+    final long enqueuedAt = System.currentTimeMillis();
+    final Supplier<CompletableFuture<Void>> send;
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    long bootStartedAt;
+
+    StartRequest(String server, String host, int cost, Supplier<CompletableFuture<Void>> send) {
+      this.server = server;
+      this.host = host;
+      this.cost = cost;
+      this.send = send;
+    }
+  }
+
+  private final class HostQueue {
+    final String host;
+    // priorities move as players join, so the waiting list is ordered when a slot frees up
+    // rather than kept in a heap keyed on stale counts
+    final List<StartRequest> waiting = new ArrayList<>();
+    final Map<String, StartRequest> booting = new HashMap<>();
+    int costInUse;
+
+    HostQueue(String host) {
+      this.host = host;
+    }
+
+    Comparator<StartRequest> order() {
+      return Comparator.<StartRequest>comparingInt(r -> -waitingPlayers.applyAsInt(r.server))
+        .thenComparingLong(r -> r.enqueuedAt);
+    }
+  }
+
+  public StartScheduler(PluginConfig config, BackendStateRegistry states, ReadinessProber prober,
+                        ToIntFunction<String> waitingPlayers, ScheduledExecutorService timer, Logger logger) {
+    this.config = config;
+    this.states = states;
+    this.prober = prober;
+    this.waitingPlayers = waitingPlayers;
+    this.timer = timer;
+    this.logger = logger;
+  }
+
+  /**
+   * Queue a start. The future completes with the send's outcome once it has been dispatched.
+   */
+  public CompletableFuture<Void> submit(String server, String host, Supplier<CompletableFuture<Void>> send) {
+    StartRequest req = new StartRequest(server, host, Math.max(1, config.getBootCost(server)), send);
+    HostQueue q = hosts.computeIfAbsent(host, HostQueue::new);
+    synchronized (q) {
+      q.waiting.add(req);
+    }
+    pump(q);
+    return req.future;
+  }
+
+  @Override
+  public void onStateChange(String server, ServerState from, ServerState to) {
+    if (from == ServerState.STARTING) {
+      release(server, null);
+    }
+  }
+
+  /**
+   * Forget a server dropped from the config: its waiting start fails and a boot slot it holds is freed.
+   */
+  public void remove(String server) {
+    List<StartRequest> dropped = new ArrayList<>();
+    for (HostQueue q : hosts.values()) {
+      synchronized (q) {
+        q.waiting.removeIf(r -> r.server.equals(server) && dropped.add(r));
+      }
+    }
+    dropped.forEach(r -> r.future.completeExceptionally(new IllegalStateException(server + " was removed from the config")));
+    release(server, null);
+  }
+
+  /**
+   * 1-based position among waiting starts on the server's host, or 0 if it is not waiting.
+   */
+  public int getQueuePosition(String server) {
+    for (HostQueue q : hosts.values()) {
+      synchronized (q) {
+        List<StartRequest> sorted = sortedWaiting(q);
+        for (int i = 0; i < sorted.size(); i++) {
+          if (sorted.get(i).server.equals(server)) return i + 1;
+        }
+      }
+    }
+    return 0;
+  }
+
+  public int getQueueDepth() {
+    int n = 0;
+    for (HostQueue q : hosts.values()) {
+      synchronized (q) {
+        n += q.waiting.size();
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Estimated wall-clock millis at which a waiting server's boot will be dispatched, replaying
+   * the queue ahead of it against expected boot times. -1 if it is not waiting.
+   */
+  public long getExpectedStartMillis(String server) {
+    for (HostQueue q : hosts.values()) {
+      synchronized (q) {
+        List<StartRequest> sorted = sortedWaiting(q);
+        if (sorted.stream().noneMatch(r -> r.server.equals(server))) continue;
+
+        int capacity = capacity(q);
+        long now = System.currentTimeMillis();
+        // (finish time, cost) of everything occupying the host
+        PriorityQueue<long[]> running = new PriorityQueue<>(Comparator.comparingLong((long[] a) -> a[0]));
+        int used = 0;
+        for (StartRequest b : q.booting.values()) {
+          running.add(new long[] {Math.max(now, b.bootStartedAt + expectedBoot(b.server)), b.cost});
+          used += b.cost;
+        }
+        long t = now;
+        for (StartRequest r : sorted) {
+          while (used + r.cost > capacity && !running.isEmpty()) {
+            long[] done = running.poll();
+            t = Math.max(t, done[0]);
+            used -= (int) done[1];
+          }
+          if (r.server.equals(server)) return t;
+          running.add(new long[] {t + expectedBoot(r.server), r.cost});
+          used += r.cost;
+        }
+      }
+    }
+    return -1L;
+  }
+
+  private List<StartRequest> sortedWaiting(HostQueue q) {
+    List<StartRequest> sorted = new ArrayList<>(q.waiting);
+    sorted.sort(q.order());
+    return sorted;
+  }
+
+  private int capacity(HostQueue q) {
+    return Math.max(1, config.getMaxConcurrentBootCost(q.host));
+  }
+
+  private long expectedBoot(String server) {
+    long e = prober.getExpectedBootMillis(server);
+    return (e > 0) ? e : DEFAULT_BOOT_MILLIS;
+  }
+
+  private void pump(HostQueue q) {
+    List<StartRequest> dispatch = new ArrayList<>();
+    synchronized (q) {
+      int capacity = capacity(q);
+      List<StartRequest> sorted = sortedWaiting(q);
+      for (StartRequest r : sorted) {
+        boolean fits = q.costInUse + r.cost <= capacity || q.booting.isEmpty();
+        if (!fits) break;
+        q.waiting.remove(r);
+        q.booting.put(r.server, r);
+        q.costInUse += r.cost;
+        r.bootStartedAt = System.currentTimeMillis();
+        dispatch.add(r);
+      }
+    }
+    for (StartRequest r : dispatch) {
+      if (r.bootStartedAt - r.enqueuedAt > 1000L) {
+        logger.info("Boot slot for {} on {} after {} ms in queue", r.server, r.host, r.bootStartedAt - r.enqueuedAt);
+      }
+      timer.schedule(() -> release(r.server, r), config.getMaxStartWaitSeconds(), TimeUnit.SECONDS);
+      CompletableFuture<Void> sent;
+      try {
+        sent = r.send.get();
+      } catch (Exception ex) {
+        sent = CompletableFuture.failedFuture(ex);
+      }
+      sent.whenComplete((v, ex) -> {
+        // failed, or the server was already up: nothing is booting, free the slot now
+        if (ex != null || states.getState(r.server) != ServerState.STARTING) {
+          release(r.server, r);
+        }
+        if (ex != null) {
+          r.future.completeExceptionally(ex);
+        } else {
+          r.future.complete(null);
+        }
+      });
+    }
+  }
+
+  // expected == null frees whatever boot the server holds; otherwise only that specific request
+  private void release(String server, StartRequest expected) {
+    for (HostQueue q : hosts.values()) {
+      boolean freed;
+      synchronized (q) {
+        StartRequest r = q.booting.get(server);
+        freed = r != null && (expected == null || r == expected);
+        if (freed) {
+          q.booting.remove(server);
+          q.costInUse -= r.cost;
+        }
+      }
+      if (freed) {
+        pump(q);
+        return;
+      }
+    }
+  }
+}
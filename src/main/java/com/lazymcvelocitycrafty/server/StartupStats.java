@@ -0,0 +1,131 @@
+package com.lazymcvelocitycrafty.server;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.lazymcvelocitycrafty.util.AtomicFiles;
+import org.slf4j.Logger;
+
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-server cold-start durations: an EWMA for the point estimate plus the last
+ * {@value #WINDOW} samples for percentiles. Persisted in startup-stats.json so a proxy restart
+ * does not forget how long each backend takes to boot.
+ */
+public class StartupStats {
+
+  static final int WINDOW = 32;
+  private static final double EWMA_ALPHA = 0.3;
+  private static final Type FILE_TYPE = new TypeToken<Map<String, Series>>() {}.getType();
+
+  private final Path file;
+  private final Logger logger;
+  private final Gson gson = new Gson();
+  private final ConcurrentMap<String, Series> series = new ConcurrentHashMap<>();
+
+  // one server's history; also the on-disk layout
+  private static final class Series {
+    double ewmaMillis = -1;
+    long count;
+    long[] recent = new long[0];
+
+    synchronized void add(long millis) {
+      ewmaMillis = (ewmaMillis < 0) ? millis : ewmaMillis + EWMA_ALPHA * (millis - ewmaMillis);
+      count++;
+      int keep = Math.min(WINDOW, recent.length + 1);
+      long[] next = new long[keep];
+      System.arraycopy(recent, recent.length - (keep - 1), next, 0, keep - 1);
+      next[keep - 1] = millis;
+      recent = next;
+    }
+
+    synchronized long percentile(double q) {
+      if (recent.length == 0) return -1L;
+      long[] sorted = recent.clone();
+      Arrays.sort(sorted);
+      int idx = (int) Math.ceil(q * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+
+    synchronized Series copy() {
+      Series s = new Series();
+      s.ewmaMillis = ewmaMillis;
+      s.count = count;
+      s.recent = recent.clone();
+      return s;
+    }
+  }
+
+  public StartupStats(Path dataDirectory, Logger logger) {
+    this.file = dataDirectory.resolve("startup-stats.json");
+    this.logger = logger;
+  }
+
+  public void load() {
+    if (!Files.exists(file)) return;
+    try (Reader r = Files.newBufferedReader(file)) {
+      Map<String, Series> stored = gson.fromJson(r, FILE_TYPE);
+      if (stored == null) return;
+      stored.forEach((name, s) -> {
+        if (s == null) return;
+        if (s.recent == null) s.recent = new long[0];
+        if (s.recent.length > WINDOW) s.recent = Arrays.copyOfRange(s.recent, s.recent.length - WINDOW, s.recent.length);
+        series.put(name, s);
+      });
+    } catch (Exception ex) {
+      logger.warn("Failed to load startup-stats.json, boot ETAs start from scratch: {}", ex.getMessage());
+    }
+  }
+
+  public synchronized void save() {
+    Map<String, Series> out = new HashMap<>();
+    series.forEach((name, s) -> out.put(name, s.copy()));
+    try {
+      AtomicFiles.writeString(file, gson.toJson(out));
+    } catch (Exception ex) {
+      logger.error("Failed to save startup-stats.json", ex);
+    }
+  }
+
+  /**
+   * Record one observed boot (accepted start request to first successful ping).
+   */
+  public void record(String server, long millis) {
+    series.computeIfAbsent(server, k -> new Series()).add(millis);
+  }
+
+  /**
+   * Smoothed boot time, or -1 if this server has never been seen starting.
+   */
+  public long getExpectedMillis(String server) {
+    Series s = series.get(server);
+    if (s == null) return -1L;
+    synchronized (s) {
+      return (s.ewmaMillis < 0) ? -1L : (long) s.ewmaMillis;
+    }
+  }
+
+  /**
+   * Boot time at quantile q (0..1) over the recent window, or -1 without history.
+   */
+  public long getPercentileMillis(String server, double q) {
+    Series s = series.get(server);
+    return (s == null) ? -1L : s.percentile(q);
+  }
+
+  public long getSampleCount(String server) {
+    Series s = series.get(server);
+    if (s == null) return 0L;
+    synchronized (s) {
+      return s.count;
+    }
+  }
+}
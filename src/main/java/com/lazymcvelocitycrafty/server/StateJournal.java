@@ -0,0 +1,138 @@
+package com.lazymcvelocitycrafty.server;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.lazymcvelocitycrafty.util.AtomicFiles;
+import org.slf4j.Logger;
+
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Last known backend states in state-journal.json, so a proxy restart starts from a best guess
+ * instead of "everything OFFLINE".
+ *
+ * Every state change updates the in-memory journal and schedules one coalesced write. On startup
+ * {@link #restoreInto} seeds the registry without notifying listeners; the first background probe
+ * sweep then confirms or corrects every entry in parallel.
+ */
+public class StateJournal implements BackendStateRegistry.StateListener {
+
+  private static final long SAVE_DELAY_MILLIS = 1000L;
+  private static final Type FILE_TYPE = new TypeToken<Map<String, Entry>>() {}.getType();
+
+  private final Path file;
+  private final ScheduledExecutorService writer;
+  private final Logger logger;
+  private final Gson gson = new Gson();
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+  // one server's record; also the on-disk layout
+  private static final class Entry {
+    ServerState state = ServerState.OFFLINE;
+    long sinceMillis;
+    long lastStartMillis;
+    long lastStopMillis;
+    long lastBootMillis;
+
+    Entry copy() {
+      Entry e = new Entry();
+      e.state = state;
+      e.sinceMillis = sinceMillis;
+      e.lastStartMillis = lastStartMillis;
+      e.lastStopMillis = lastStopMillis;
+      e.lastBootMillis = lastBootMillis;
+      return e;
+    }
+  }
+
+  public StateJournal(Path dataDirectory, ScheduledExecutorService writer, Logger logger) {
+    this.file = dataDirectory.resolve("state-journal.json");
+    this.writer = writer;
+    this.logger = logger;
+  }
+
+  public void load() {
+    if (!Files.exists(file)) return;
+    try (Reader r = Files.newBufferedReader(file)) {
+      Map<String, Entry> stored = gson.fromJson(r, FILE_TYPE);
+      if (stored == null) return;
+      stored.forEach((name, e) -> {
+        if (e != null && e.state != null) entries.put(name, e);
+      });
+    } catch (Exception ex) {
+      logger.warn("Failed to read state-journal.json, starting with all backends OFFLINE: {}", ex.getMessage());
+    }
+  }
+
+  /**
+   * Seed the registry with the journalled states of managed servers. Returns how many were restored.
+   * Servers journalled as STOPPING are skipped: whether that stop finished is unknown, so they are
+   * left to the first probe like a server with no entry.
+   */
+  public int restoreInto(BackendStateRegistry states, Iterable<String> managed) {
+    int restored = 0;
+    int online = 0;
+    for (String name : managed) {
+      Entry e = entries.get(name);
+      if (e == null || e.state == ServerState.STOPPING || !states.restore(name, e.state, e.sinceMillis)) continue;
+      restored++;
+      if (e.state == ServerState.ONLINE) online++;
+    }
+    if (restored > 0) {
+      logger.info("Restored {} backend states from state-journal.json ({} online), verifying in background", restored, online);
+    }
+    return restored;
+  }
+
+  @Override
+  public void onStateChange(String server, ServerState from, ServerState to) {
+    long now = System.currentTimeMillis();
+    entries.compute(server, (k, old) -> {
+      Entry e = (old == null) ? new Entry() : old.copy();
+      if (to == ServerState.STARTING) e.lastStartMillis = now;
+      if (to == ServerState.STOPPING) e.lastStopMillis = now;
+      if (from == ServerState.STARTING && to == ServerState.ONLINE && e.lastStartMillis > 0) {
+        e.lastBootMillis = now - e.lastStartMillis;
+      }
+      e.state = to;
+      e.sinceMillis = now;
+      return e;
+    });
+    scheduleSave();
+  }
+
+  private void scheduleSave() {
+    if (!flushScheduled.compareAndSet(false, true)) return;
+    try {
+      writer.schedule(() -> {
+        flushScheduled.set(false);
+        save();
+      }, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (Exception ex) {
+      // writer already shut down
+      flushScheduled.set(false);
+      save();
+    }
+  }
+
+  public synchronized void save() {
+    // entries are replaced, never mutated, so this copy is consistent per server
+    Map<String, Entry> out = new TreeMap<>(entries);
+    try {
+      AtomicFiles.writeString(file, gson.toJson(out));
+    } catch (Exception ex) {
+      logger.error("Failed to save state-journal.json", ex);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.lazymcvelocitycrafty.tracker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last-activity timestamp per server as a monotonic System.nanoTime() value.
+ *
+ * After a server's first touch the hot path is a lock-free map read plus a CAS on its AtomicLong:
+ * no allocation, no map write. Concurrent touches keep the newest value.
+ */
+public class ActivityClock {
+
+  private final ConcurrentMap<String, AtomicLong> clocks = new ConcurrentHashMap<>();
+
+  public void touch(String server) {
+    long now = System.nanoTime();
+    AtomicLong clock = clocks.get(server);
+    if (clock == null) {
+      clock = clocks.computeIfAbsent(server, k -> new AtomicLong(now));
+    }
+    long cur = clock.get();
+    while (now - cur > 0 && !clock.compareAndSet(cur, now)) {
+      cur = clock.get();
+    }
+  }
+
+  /**
+   * Nanoseconds since the last touch, or 0 if the server was never touched.
+   */
+  public long idleNanos(String server) {
+    AtomicLong clock = clocks.get(server);
+    return (clock == null) ? 0L : Math.max(0L, System.nanoTime() - clock.get());
+  }
+
+  public void remove(String server) {
+    clocks.remove(server);
+  }
+}
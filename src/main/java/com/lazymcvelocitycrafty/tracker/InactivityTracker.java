@@ -1,18 +1,28 @@
 package com.lazymcvelocitycrafty.tracker;
 
 import com.lazymcvelocitycrafty.LazyMCVelocityCrafty;
+import com.lazymcvelocitycrafty.config.ConfigDiff;
 import com.lazymcvelocitycrafty.config.PluginConfig;
 import com.lazymcvelocitycrafty.mode.ModeManager;
 import com.lazymcvelocitycrafty.server.ServerManager;
+import com.lazymcvelocitycrafty.server.ServerState;
+import com.velocitypowered.api.scheduler.ScheduledTask;
 import org.slf4j.Logger;
 
-import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 /**
  * Tracks last activity timestamps and triggers Crafty stop when idle timeout reached.
+ *
+ * Each running server has at most one armed deadline task at last activity + idle timeout.
+ * Recording activity only moves the timestamp; when the task fires it re-arms itself for the
+ * remaining time if activity happened in the meantime. Cost therefore follows activity and idle
+ * periods rather than server count × tick rate, and shutdown fires at the actual deadline.
+ * Due shutdowns go through a ShutdownPipeline that staggers them per Crafty host.
  */
 public class InactivityTracker {
 
@@ -22,8 +32,11 @@ public class InactivityTracker {
   private final ServerManager serverManager;
   private final Logger logger;
 
-  // serverName -> last active instant
-  private final Map<String, Instant> lastActivity = new ConcurrentHashMap<>();
+  // serverName -> last activity (nanoTime), touched from event threads
+  private final ActivityClock activity = new ActivityClock();
+  // serverName -> armed idle deadline
+  private final Map<String, ScheduledTask> deadlines = new ConcurrentHashMap<>();
+  private final ShutdownPipeline shutdowns;
 
   public InactivityTracker(LazyMCVelocityCrafty plugin, PluginConfig config,
                            ModeManager modeManager, ServerManager serverManager, Logger logger) {
@@ -32,48 +45,153 @@ public class InactivityTracker {
     this.modeManager = modeManager;
     this.serverManager = serverManager;
     this.logger = logger;
+    this.shutdowns = new ShutdownPipeline(plugin, config, logger);
   }
 
+  /**
+   * Called from connect, disconnect, chat, command and heartbeat events; cheap enough for every one.
+   */
   public void recordActivity(String serverName) {
-    lastActivity.put(serverName, Instant.now());
+    if (!serverManager.hasServer(serverName)) return;
+    activity.touch(serverName);
+    arm(serverName);
   }
 
   /**
-   * Schedule the periodic checker. Call this once on plugin init.
+   * Queue a stop decided elsewhere (a drained group member) behind the same per-host stagger and
+   * cap as idle shutdowns. recheck runs again right before the stop is sent.
    */
-  public void scheduleChecker() {
-    long period = config.getCheckIntervalSeconds();
-    plugin.getProxy().getScheduler().buildTask(plugin, this::checkAll).repeat(period, TimeUnit.SECONDS).schedule();
+  public void submitStop(String server, BooleanSupplier recheck) {
+    shutdowns.submit(server, config.getControlHostId(server), recheck, () -> {
+      logger.info("Stopping {}.", server);
+      return serverManager.stopServer(server).whenComplete((v, ex) -> {
+        if (ex != null) logger.warn("Failed to stop {}: {}", server, ex.getMessage());
+      });
+    });
   }
 
-  private void checkAll() {
+  /**
+   * Arm idle deadlines for all managed servers and re-arm whenever one comes up. Call this once on plugin init.
+   */
+  public void scheduleChecker() {
+    serverManager.getStates().addListener(shutdowns);
+    serverManager.getStates().addListener((server, from, to) -> {
+      if (to == ServerState.STARTING || to == ServerState.ONLINE) {
+        recordActivity(server);
+      }
+    });
     for (String server : config.getManagedServers()) {
-      // skip non-managed or if mode prevents shutdown
-      if (!modeManager.canShutdown(server)) continue;
-
-      int idleTimeout = config.getIdleTimeoutSeconds(server);
-      Instant last = lastActivity.getOrDefault(server, Instant.now());
-      if (Instant.now().minusSeconds(idleTimeout).isAfter(last)) {
-        // double-check player count: if there are players, skip
-        int players = serverManager.getPlayerCount(server);
-        if (players > 0) {
-          // players joined since lastActive
-          lastActivity.put(server, Instant.now());
-          continue;
-        }
+      recordActivity(server);
+    }
+    config.addReloadListener(this::onConfigReload);
+  }
 
-        // perform shutdown
-        logger.info("Server {} idle for {}s; initiating shutdown.", server, idleTimeout);
-        serverManager.stopServer(server).whenComplete((v, ex) -> {
-          if (ex != null) {
-            logger.warn("Failed to stop {}: {}", server, ex.getMessage());
-          } else {
-            if (config.isHandleFallbackOnForcedOff()) {
-              serverManager.movePlayersToLobby(server, config.getLobbyServer());
-            }
-          }
-        });
-      }
+  /**
+   * Drop deadlines of removed servers, re-arm changed ones against their new timeout and start
+   * tracking added ones.
+   */
+  private void onConfigReload(ConfigDiff diff) {
+    for (String server : diff.removed()) {
+      cancel(server);
+      activity.remove(server);
+    }
+    for (String server : diff.changed()) {
+      cancel(server);
+      arm(server);
+    }
+    for (String server : diff.added()) {
+      recordActivity(server);
+    }
+  }
+
+  private void cancel(String server) {
+    ScheduledTask task = deadlines.remove(server);
+    if (task != null) task.cancel();
+  }
+
+  // no-op if a deadline is already armed; that task picks up the newer activity when it fires
+  private void arm(String server) {
+    if (!serverManager.hasServer(server) || deadlines.containsKey(server)) return;
+    deadlines.computeIfAbsent(server, k -> schedule(k, remainingMillis(k)));
+  }
+
+  // the server is still up and idle, so look again after check_interval_seconds rather than a full timeout
+  private void retry(String server) {
+    if (!serverManager.hasServer(server)) return;
+    deadlines.computeIfAbsent(server, k -> schedule(k, Math.max(1, config.getCheckIntervalSeconds()) * 1000L));
+  }
+
+  private ScheduledTask schedule(String server, long delayMillis) {
+    return plugin.getProxy().getScheduler()
+      .buildTask(plugin, () -> onDeadline(server))
+      .delay(Math.max(0, delayMillis), TimeUnit.MILLISECONDS)
+      .schedule();
+  }
+
+  private long remainingMillis(String server) {
+    return config.getIdleTimeoutSeconds(server) * 1000L - TimeUnit.NANOSECONDS.toMillis(activity.idleNanos(server));
+  }
+
+  private void onDeadline(String server) {
+    deadlines.remove(server);
+    if (!shouldStop(server)) return;
+
+    int idleTimeout = config.getIdleTimeoutSeconds(server);
+    logger.info("Server {} idle for {}s; queueing shutdown.", server, idleTimeout);
+    shutdowns.submit(server, config.getControlHostId(server), () -> shouldStop(server), () -> stopIdle(server));
+  }
+
+  /**
+   * Whether the server is due for idle shutdown right now. Runs when the deadline fires and again
+   * when the pipeline is about to send the stop; every "no" re-arms a deadline where one is needed.
+   */
+  private boolean shouldStop(String server) {
+    // nothing to stop if the cached state says it is already down or going down; the next
+    // STARTING/ONLINE transition re-arms
+    ServerState state = serverManager.getServerState(server);
+    if (state == ServerState.OFFLINE || state == ServerState.STOPPING) return false;
+
+    // activity since this deadline was armed pushes it back
+    if (remainingMillis(server) > 0) {
+      arm(server);
+      return false;
+    }
+
+    // mode prevents shutdown right now, or players are still on it or waiting for it: look again after a full timeout
+    if (!modeManager.canShutdown(server) || serverManager.getPlayerCount(server) > 0
+      || serverManager.getPendingCount(server) > 0) {
+      recordActivity(server);
+      return false;
     }
+
+    // one of its group's warm spares; a surplus empty member is stopped instead
+    if (plugin.getGroupManager().isNeededSpare(server)) {
+      logger.debug("Holding idle shutdown of {}: warm spare", server);
+      recordActivity(server);
+      return false;
+    }
+
+    // players are expected shortly; stopping now would only buy a cold start
+    if (plugin.getPrewarmManager().isPeakImminent(server)) {
+      logger.debug("Holding idle shutdown of {}: demand peak expected", server);
+      recordActivity(server);
+      return false;
+    }
+    return true;
+  }
+
+  private CompletableFuture<Void> stopIdle(String server) {
+    plugin.getMetrics().counter("lazymc_idle_shutdowns_total", "Stops issued by idle shutdown", "server").labels(server).inc();
+    logger.info("Stopping idle server {}.", server);
+    return serverManager.stopServer(server).whenComplete((v, ex) -> {
+      if (ex != null) {
+        logger.warn("Failed to stop {}: {}; retrying in {}s", server, ex.getMessage(), config.getCheckIntervalSeconds());
+        retry(server);
+      } else {
+        if (config.isHandleFallbackOnForcedOff()) {
+          serverManager.movePlayersToLobby(server, config.getLobbyServer());
+        }
+      }
+    });
   }
 }
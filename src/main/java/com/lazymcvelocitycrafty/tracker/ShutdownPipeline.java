@@ -0,0 +1,191 @@
+package com.lazymcvelocitycrafty.tracker;
+
+import com.lazymcvelocitycrafty.LazyMCVelocityCrafty;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.server.BackendStateRegistry;
+import com.lazymcvelocitycrafty.server.ServerState;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Spreads idle shutdowns out so several servers going idle together do not all save their worlds
+ * at once.
+ *
+ * Stops are queued per Crafty host in arrival order. A host issues at most one stop every
+ * shutdown.stagger_seconds and keeps at most shutdown.max_concurrent_per_host stops in
+ * progress; a stop holds its slot until the backend has left STOPPING. Right before a queued stop
+ * is sent its recheck runs again, so a player joining (or a mode change) during the wait cancels it.
+ */
+public class ShutdownPipeline implements BackendStateRegistry.StateListener {
+
+  private final LazyMCVelocityCrafty plugin;
+  private final PluginConfig config;
+  private final Logger logger;
+  private final Map<String, HostLane> lanes = new ConcurrentHashMap<>();
+  // serverName -> slot held while its stop is in progress
+  private final Map<String, Slot> stopping = new ConcurrentHashMap<>();
+
+  private static final class PendingStop {
+    final BooleanSupplier recheck;
+    final Supplier<CompletableFuture<Void>> stop;
+
+    PendingStop(BooleanSupplier recheck, Supplier<CompletableFuture<Void>> stop) {
+      this.recheck = recheck;
+      this.stop = stop;
+    }
+  }
+
+  // identity matters: a late safety timer must not free the slot of a newer stop
+  private static final class Slot {
+    final HostLane lane;
+
+    Slot(HostLane lane) {
+      this.lane = lane;
+    }
+  }
+
+  private static final class HostLane {
+    final String host;
+    // serverName -> queued stop, in arrival order
+    final LinkedHashMap<String, PendingStop> waiting = new LinkedHashMap<>();
+    final Set<String> inProgress = new HashSet<>();
+    long nextSlotMillis;
+    ScheduledTask timer;
+
+    HostLane(String host) {
+      this.host = host;
+    }
+  }
+
+  public ShutdownPipeline(LazyMCVelocityCrafty plugin, PluginConfig config, Logger logger) {
+    this.plugin = plugin;
+    this.config = config;
+    this.logger = logger;
+    plugin.getMetrics().gauge("lazymc_shutdown_queue_depth", "Idle shutdowns waiting for a stagger slot", this::getQueueDepth);
+  }
+
+  /**
+   * Queue an idle stop. recheck runs again right before the stop is sent and must return false
+   * (re-arming whatever it needs) if the server should stay up after all. Duplicate submits for a
+   * server already queued or stopping are ignored.
+   */
+  public void submit(String server, String host, BooleanSupplier recheck, Supplier<CompletableFuture<Void>> stop) {
+    HostLane lane = lanes.computeIfAbsent(host, HostLane::new);
+    synchronized (lane) {
+      if (lane.waiting.containsKey(server) || lane.inProgress.contains(server)) return;
+      lane.waiting.put(server, new PendingStop(recheck, stop));
+      if (lane.waiting.size() > 1 || !lane.inProgress.isEmpty()) {
+        logger.info("Idle shutdown of {} queued ({} waiting on {})", server, lane.waiting.size(), host);
+      }
+    }
+    pump(lane);
+  }
+
+  /**
+   * Stops waiting for a slot across all hosts.
+   */
+  public int getQueueDepth() {
+    int depth = 0;
+    for (HostLane lane : lanes.values()) {
+      synchronized (lane) {
+        depth += lane.waiting.size();
+      }
+    }
+    return depth;
+  }
+
+  @Override
+  public void onStateChange(String server, ServerState from, ServerState to) {
+    if (from == ServerState.STOPPING) {
+      release(server);
+    }
+  }
+
+  private void release(String server) {
+    Slot slot = stopping.remove(server);
+    if (slot != null) free(server, slot.lane);
+  }
+
+  private void release(String server, Slot slot) {
+    if (stopping.remove(server, slot)) free(server, slot.lane);
+  }
+
+  private void free(String server, HostLane lane) {
+    synchronized (lane) {
+      lane.inProgress.remove(server);
+    }
+    pump(lane);
+  }
+
+  private void pump(HostLane lane) {
+    List<Map.Entry<String, PendingStop>> due = new ArrayList<>();
+    List<Slot> slots = new ArrayList<>();
+    synchronized (lane) {
+      long now = System.currentTimeMillis();
+      int maxConcurrent = Math.max(1, config.getShutdownMaxConcurrentPerHost());
+      long stagger = Math.max(0, config.getShutdownStaggerSeconds()) * 1000L;
+      while (!lane.waiting.isEmpty() && lane.inProgress.size() < maxConcurrent && now >= lane.nextSlotMillis) {
+        var it = lane.waiting.entrySet().iterator();
+        Map.Entry<String, PendingStop> next = it.next();
+        it.remove();
+        if (!next.getValue().recheck.getAsBoolean()) {
+          logger.info("Idle shutdown of {} cancelled: no longer idle", next.getKey());
+          continue;
+        }
+        Slot slot = new Slot(lane);
+        lane.inProgress.add(next.getKey());
+        stopping.put(next.getKey(), slot);
+        slots.add(slot);
+        lane.nextSlotMillis = now + stagger;
+        due.add(next);
+      }
+      // only a stagger gap needs a timer; a full lane is pumped again by release()
+      if (!lane.waiting.isEmpty() && lane.inProgress.size() < maxConcurrent && lane.timer == null) {
+        lane.timer = plugin.getProxy().getScheduler()
+          .buildTask(plugin, () -> {
+            synchronized (lane) {
+              lane.timer = null;
+            }
+            pump(lane);
+          })
+          .delay(Math.max(0, lane.nextSlotMillis - now), TimeUnit.MILLISECONDS)
+          .schedule();
+      }
+    }
+    for (int i = 0; i < due.size(); i++) {
+      launch(due.get(i).getKey(), due.get(i).getValue(), slots.get(i));
+    }
+  }
+
+  private void launch(String server, PendingStop pending, Slot slot) {
+    // bounded even if the backend never reports leaving STOPPING
+    plugin.getProxy().getScheduler()
+      .buildTask(plugin, () -> release(server, slot))
+      .delay(config.getMaxStartWaitSeconds(), TimeUnit.SECONDS)
+      .schedule();
+    CompletableFuture<Void> stop;
+    try {
+      stop = pending.stop.get();
+    } catch (RuntimeException ex) {
+      stop = CompletableFuture.failedFuture(ex);
+    }
+    stop.whenComplete((v, ex) -> {
+      // a failed or already-offline stop never passes through STOPPING
+      if (ex != null || plugin.getServerManager().getServerState(server) == ServerState.OFFLINE) {
+        release(server, slot);
+      }
+    });
+  }
+}
@@ -0,0 +1,26 @@
+package com.lazymcvelocitycrafty;
+
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.group.GroupManager;
+import com.lazymcvelocitycrafty.mode.ModeManager;
+import com.lazymcvelocitycrafty.prewarm.PrewarmManager;
+import com.lazymcvelocitycrafty.server.ServerManager;
+import com.lazymcvelocitycrafty.tracker.InactivityTracker;
+
+/**
+ * Entry point to the plugin's package-private offline wiring for the simulator, benchmarks and
+ * tests. Lives in the sim source set so it never ships in the plugin jar.
+ */
+public final class OfflineWiring {
+
+  private OfflineWiring() {}
+
+  /**
+   * Wire already-built components into plugin in place of onProxyInitialization; inactivityTracker may be null.
+   */
+  public static void attach(LazyMCVelocityCrafty plugin, PluginConfig config, ServerManager serverManager,
+                            ModeManager modeManager, PrewarmManager prewarmManager, GroupManager groupManager,
+                            InactivityTracker inactivityTracker) {
+    plugin.attach(config, serverManager, modeManager, prewarmManager, groupManager, inactivityTracker);
+  }
+}
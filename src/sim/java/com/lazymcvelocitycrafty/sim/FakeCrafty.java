@@ -0,0 +1,150 @@
+package com.lazymcvelocitycrafty.sim;
+
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Minimal local stand-in for the Crafty v2 API: the action and stats endpoints the plugin uses,
+ * with configurable boot delay, jitter and failure rate. Boots complete on the wall clock, so
+ * stats and pings answer from the same timeline the plugin sees.
+ */
+public class FakeCrafty {
+
+  /** Lifecycle of one fake backend; readyAtMillis is 0 while stopped. */
+  private static final class Backend {
+    volatile boolean running;
+    volatile long readyAtMillis;
+  }
+
+  private final long bootMillis;
+  private final long bootJitterMillis;
+  private final double failureRate;
+  private final ConcurrentMap<String, Backend> backends = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder> calls = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder> failures = new ConcurrentHashMap<>();
+  private final LongAdder boots = new LongAdder();
+  private HttpServer server;
+
+  public FakeCrafty(long bootMillis, long bootJitterMillis, double failureRate) {
+    this.bootMillis = bootMillis;
+    this.bootJitterMillis = bootJitterMillis;
+    this.failureRate = failureRate;
+  }
+
+  public void start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/api/v2/servers/", this::handle);
+    server.setExecutor(Executors.newCachedThreadPool(r -> {
+      Thread t = new Thread(r, "fake-crafty");
+      t.setDaemon(true);
+      return t;
+    }));
+    server.start();
+  }
+
+  public void stop() {
+    if (server != null) server.stop(0);
+  }
+
+  public String getBaseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /** True once a started backend has finished booting, i.e. a ping would succeed. */
+  public boolean isReady(String uuid) {
+    Backend b = backends.get(uuid);
+    return b != null && b.running && System.currentTimeMillis() >= b.readyAtMillis;
+  }
+
+  public Map<String, Long> getCalls() { return snapshot(calls); }
+  public Map<String, Long> getFailures() { return snapshot(failures); }
+  public long getBoots() { return boots.sum(); }
+
+  private static Map<String, Long> snapshot(ConcurrentMap<String, LongAdder> counters) {
+    Map<String, Long> out = new TreeMap<>();
+    counters.forEach((k, v) -> out.put(k, v.sum()));
+    return out;
+  }
+
+  // /api/v2/servers/{uuid}/action/{action} and /api/v2/servers/{uuid}/stats
+  private void handle(HttpExchange ex) throws IOException {
+    String[] parts = ex.getRequestURI().getPath().split("/");
+    try {
+      if (parts.length == 7 && "action".equals(parts[5]) && "POST".equals(ex.getRequestMethod())) {
+        action(ex, parts[4], parts[6]);
+      } else if (parts.length == 6 && "stats".equals(parts[5])) {
+        stats(ex, parts[4]);
+      } else {
+        reply(ex, 404, error("NOT_FOUND"));
+      }
+    } finally {
+      ex.close();
+    }
+  }
+
+  private void action(HttpExchange ex, String uuid, String action) throws IOException {
+    calls.computeIfAbsent(action, k -> new LongAdder()).increment();
+    if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+      failures.computeIfAbsent(action, k -> new LongAdder()).increment();
+      reply(ex, 500, error("INTERNAL"));
+      return;
+    }
+    Backend b = backends.computeIfAbsent(uuid, k -> new Backend());
+    synchronized (b) {
+      if ("start_server".equals(action) && !b.running) {
+        long jitter = (bootJitterMillis > 0) ? ThreadLocalRandom.current().nextLong(-bootJitterMillis, bootJitterMillis + 1) : 0L;
+        b.readyAtMillis = System.currentTimeMillis() + Math.max(0L, bootMillis + jitter);
+        b.running = true;
+        boots.increment();
+      } else if ("stop_server".equals(action)) {
+        b.running = false;
+        b.readyAtMillis = 0L;
+      }
+    }
+    JsonObject ok = new JsonObject();
+    ok.addProperty("status", "ok");
+    reply(ex, 200, ok);
+  }
+
+  private void stats(HttpExchange ex, String uuid) throws IOException {
+    calls.computeIfAbsent("stats", k -> new LongAdder()).increment();
+    Backend b = backends.get(uuid);
+    JsonObject data = new JsonObject();
+    data.addProperty("running", b != null && b.running);
+    data.addProperty("crashed", false);
+    data.addProperty("version", isReady(uuid) ? "1.20.4" : "False");
+    JsonObject root = new JsonObject();
+    root.addProperty("status", "ok");
+    root.add("data", data);
+    reply(ex, 200, root);
+  }
+
+  private static JsonObject error(String code) {
+    JsonObject o = new JsonObject();
+    o.addProperty("status", "error");
+    o.addProperty("error", code);
+    return o;
+  }
+
+  private static void reply(HttpExchange ex, int status, JsonObject body) throws IOException {
+    byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+    ex.getResponseHeaders().set("Content-Type", "application/json");
+    ex.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = ex.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,304 @@
+package com.lazymcvelocitycrafty.sim;
+
+import com.lazymcvelocitycrafty.LazyMCVelocityCrafty;
+import com.lazymcvelocitycrafty.OfflineWiring;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.crafty.CraftyStats;
+import com.lazymcvelocitycrafty.group.GroupManager;
+import com.lazymcvelocitycrafty.listeners.ActivityListener;
+import com.lazymcvelocitycrafty.listeners.PlayerPresenceListener;
+import com.lazymcvelocitycrafty.listeners.PlayerServerConnectListener;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import com.lazymcvelocitycrafty.mode.ModeManager;
+import com.lazymcvelocitycrafty.prewarm.PrewarmManager;
+import com.lazymcvelocitycrafty.server.ServerManager;
+import com.lazymcvelocitycrafty.sim.SimProxy.SimPlayer;
+import com.lazymcvelocitycrafty.tracker.InactivityTracker;
+import com.velocitypowered.api.event.Continuation;
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Join-storm simulation: drives the real ServerManager, InactivityTracker and connect listener
+ * against {@link FakeCrafty} and {@link SimProxy}, then prints time-to-connect percentiles,
+ * Crafty call counts and missed auto-connects.
+ *
+ * Arguments are key=value pairs, e.g. {@code players=5000 servers=16 duration=120 boot_ms=6000}.
+ * See {@link #DEFAULTS} for the full list.
+ */
+public final class LoadSimulation {
+
+  private static final Map<String, String> DEFAULTS = Map.ofEntries(
+    Map.entry("servers", "8"),            // managed backends
+    Map.entry("players", "2000"),         // synthetic joins over the run
+    Map.entry("duration", "60"),          // seconds over which joins arrive
+    Map.entry("boot_ms", "8000"),         // fake boot time
+    Map.entry("boot_jitter_ms", "2000"),  // +/- uniform jitter on boot time
+    Map.entry("failure_rate", "0.05"),    // share of Crafty actions answered with 500
+    Map.entry("session", "30"),           // mean seconds a player stays once connected
+    Map.entry("idle_timeout", "15"),      // per-server idle_timeout_seconds
+    Map.entry("hold", "0"),               // per-server hold_max_boot_seconds
+    Map.entry("max_start_wait", "60"),    // seconds a player waits before giving up
+    Map.entry("status_poll", "false"),    // crafty.status_poll
+    Map.entry("seed", "1"));
+
+  private static final Logger LOG = LoggerFactory.getLogger("lazymc-sim");
+
+  private final Map<String, String> args;
+  private final Random random;
+  private final FakeCrafty crafty;
+  private final SimProxy sim;
+  private final ScheduledExecutorService driver = Executors.newSingleThreadScheduledExecutor();
+  private final Map<String, String> uuids = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+
+  // per-player target and request time (nanoTime), removed once the target is reached
+  private final ConcurrentMap<UUID, String> targets = new ConcurrentHashMap<>();
+  private final ConcurrentMap<UUID, Long> requestedAt = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedQueue<Long> connectMillis = new ConcurrentLinkedQueue<>();
+  private final LongAdder joins = new LongAdder();
+  private final LongAdder direct = new LongAdder();
+  private final LongAdder missed = new LongAdder();
+  private final LongAdder listenerErrors = new LongAdder();
+
+  private PlayerServerConnectListener connectListener;
+  private PlayerPresenceListener presenceListener;
+  private ActivityListener activityListener;
+  private ServerManager serverManager;
+  private ModeManager modeManager;
+
+  private LoadSimulation(Map<String, String> args) {
+    this.args = args;
+    this.random = new Random(longArg("seed"));
+    this.crafty = new FakeCrafty(longArg("boot_ms"), longArg("boot_jitter_ms"), Double.parseDouble(args.get("failure_rate")));
+    this.sim = new SimProxy(name -> "lobby".equals(name) || crafty.isReady(uuids.get(name)));
+  }
+
+  public static void main(String[] argv) throws Exception {
+    Map<String, String> args = new HashMap<>(DEFAULTS);
+    for (String a : argv) {
+      int eq = a.indexOf('=');
+      if (eq <= 0 || !DEFAULTS.containsKey(a.substring(0, eq))) {
+        System.err.println("Unknown argument '" + a + "'. Known: " + DEFAULTS.keySet());
+        System.exit(2);
+      }
+      args.put(a.substring(0, eq), a.substring(eq + 1));
+    }
+    LoadSimulation simulation = new LoadSimulation(args);
+    try {
+      simulation.run();
+    } finally {
+      simulation.close();
+    }
+    System.exit(0);
+  }
+
+  private long longArg(String key) {
+    return Long.parseLong(args.get(key));
+  }
+
+  private void run() throws Exception {
+    crafty.start();
+    sim.register("lobby");
+    for (int i = 0; i < longArg("servers"); i++) {
+      String name = "server" + i;
+      names.add(name);
+      uuids.put(name, new UUID(1L, i).toString());
+      sim.register(name);
+    }
+    wirePlugin();
+    sim.onConnected(this::onConnected);
+
+    long durationMillis = longArg("duration") * 1000L;
+    long patienceMillis = longArg("max_start_wait") * 1000L;
+    long players = longArg("players");
+    System.out.printf("Simulating %d joins over %ds against %d servers (fake Crafty at %s)%n",
+      players, durationMillis / 1000, names.size(), crafty.getBaseUrl());
+    for (long i = 0; i < players; i++) {
+      UUID id = new UUID(2L, i);
+      String target = pickTarget();
+      long at = (long) (random.nextDouble() * durationMillis);
+      driver.schedule(() -> join(id, target, patienceMillis), at, TimeUnit.MILLISECONDS);
+    }
+
+    // every join resolves (connected or given up) within its patience window
+    Thread.sleep(durationMillis + patienceMillis + 2000L);
+    report();
+  }
+
+  // the plugin as onProxyInitialization would wire it, minus commands and the metrics server
+  private void wirePlugin() throws Exception {
+    Path dataDir = Files.createTempDirectory("lazymc-sim");
+    StringBuilder toml = new StringBuilder();
+    toml.append("lobby_server = \"lobby\"\n");
+    toml.append("watch_config = false\n");
+    toml.append("max_start_wait_seconds = ").append(longArg("max_start_wait")).append('\n');
+    toml.append("probe_interval_seconds = 2\n");
+    toml.append("crafty.host = \"").append(crafty.getBaseUrl()).append("\"\n");
+    toml.append("crafty.api_key = \"sim\"\n");
+    toml.append("crafty.status_poll = ").append(Boolean.parseBoolean(args.get("status_poll"))).append('\n');
+    toml.append("crafty.status_poll_interval_seconds = 2\n");
+    toml.append("[servers]\n");
+    for (String name : names) {
+      toml.append("[servers.").append(name).append("]\n");
+      toml.append("uuid = \"").append(uuids.get(name)).append("\"\n");
+      toml.append("idle_timeout_seconds = ").append(longArg("idle_timeout")).append('\n');
+      toml.append("hold_max_boot_seconds = ").append(longArg("hold")).append('\n');
+    }
+    Files.writeString(dataDir.resolve("config.toml"), toml.toString());
+
+    LazyMCVelocityCrafty plugin = new LazyMCVelocityCrafty(sim.getProxy(), LOG, dataDir);
+    PluginConfig config = PluginConfig.load(dataDir, LOG);
+    serverManager = new ServerManager(plugin, config, new Metrics(), LOG);
+    modeManager = new ModeManager(dataDir, LOG);
+    modeManager.load();
+    PrewarmManager prewarm = new PrewarmManager(plugin, config, serverManager, modeManager, dataDir, LOG);
+    GroupManager groups = new GroupManager(plugin, config, serverManager, modeManager, LOG);
+    InactivityTracker tracker = new InactivityTracker(plugin, config, modeManager, serverManager, LOG);
+    OfflineWiring.attach(plugin, config, serverManager, modeManager, prewarm, groups, tracker);
+
+    connectListener = new PlayerServerConnectListener(plugin, serverManager, modeManager);
+    presenceListener = new PlayerPresenceListener(serverManager.getPresence());
+    tracker.scheduleChecker();
+    activityListener = new ActivityListener(tracker, null);
+  }
+
+  // Zipf-like: a few busy servers and a long tail that keeps going idle
+  private String pickTarget() {
+    double total = 0;
+    for (int i = 0; i < names.size(); i++) total += 1.0 / (i + 1);
+    double r = random.nextDouble() * total;
+    for (int i = 0; i < names.size(); i++) {
+      r -= 1.0 / (i + 1);
+      if (r <= 0) return names.get(i);
+    }
+    return names.get(names.size() - 1);
+  }
+
+  private void join(UUID id, String target, long patienceMillis) {
+    joins.increment();
+    SimPlayer player = sim.join(id, "sim" + id.getLeastSignificantBits());
+    sim.connect(player, sim.getServer("lobby"));
+
+    targets.put(id, target);
+    requestedAt.put(id, System.nanoTime());
+    ServerPreConnectEvent event = new ServerPreConnectEvent(player.getPlayer(), sim.getServer(target));
+    EventTask task = connectListener.onServerPreConnect(event);
+    if (task == null) {
+      finish(player, event, target);
+    } else {
+      task.execute(new Continuation() {
+        @Override
+        public void resume() {
+          finish(player, event, target);
+        }
+
+        @Override
+        public void resumeWithException(Throwable exception) {
+          listenerErrors.increment();
+          LOG.warn("Pre-connect handler failed for {}: {}", id, exception.toString());
+        }
+      });
+    }
+
+    driver.schedule(() -> {
+      if (requestedAt.remove(id) != null) {
+        missed.increment();
+        leave(player);
+      }
+    }, patienceMillis, TimeUnit.MILLISECONDS);
+  }
+
+  // what Velocity does once all pre-connect handlers have run
+  private void finish(SimPlayer player, ServerPreConnectEvent event, String target) {
+    event.getResult().getServer().ifPresent(rs -> {
+      if (rs.getServerInfo().getName().equals(target) && sim.connect(player, rs)) {
+        direct.increment();
+      }
+      // redirected to (or denied on) the lobby: the player waits for AutoConnectDispatcher
+    });
+  }
+
+  private void onConnected(SimPlayer player, RegisteredServer rs) {
+    ServerConnectedEvent event = new ServerConnectedEvent(player.getPlayer(), rs, null);
+    presenceListener.onServerConnected(event);
+    connectListener.onServerConnected(event);
+    activityListener.onServerConnected(event);
+
+    UUID id = player.getId();
+    if (!rs.getServerInfo().getName().equals(targets.get(id))) return;
+    Long started = requestedAt.remove(id);
+    if (started == null) return;
+    connectMillis.add((System.nanoTime() - started) / 1_000_000L);
+    long sessionMillis = (long) (-Math.log(1.0 - random.nextDouble()) * longArg("session") * 1000.0);
+    driver.schedule(() -> leave(player), sessionMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void leave(SimPlayer player) {
+    if (!sim.isOnline(player)) return;
+    DisconnectEvent event = new DisconnectEvent(player.getPlayer(), DisconnectEvent.LoginStatus.SUCCESSFUL_LOGIN);
+    activityListener.onDisconnect(event);
+    sim.leave(player);
+    presenceListener.onDisconnect(event);
+  }
+
+  private void report() {
+    List<Long> samples = new ArrayList<>(connectMillis);
+    samples.sort(null);
+    long connected = samples.size();
+
+    System.out.println();
+    System.out.println("== Players ==");
+    System.out.printf("joins              %d%n", joins.sum());
+    System.out.printf("connected          %d (direct/held %d, auto-connect %d)%n", connected, direct.sum(), connected - direct.sum());
+    System.out.printf("missed             %d%n", missed.sum());
+    System.out.printf("listener errors    %d%n", listenerErrors.sum());
+    System.out.println("== Time to connect (ms) ==");
+    System.out.printf("p50 %d  p90 %d  p99 %d  max %d%n",
+      percentile(samples, 0.50), percentile(samples, 0.90), percentile(samples, 0.99), percentile(samples, 1.0));
+    System.out.println("== Fake Crafty ==");
+    System.out.printf("calls              %s%n", crafty.getCalls());
+    System.out.printf("injected failures  %s%n", crafty.getFailures());
+    System.out.printf("boots              %d%n", crafty.getBoots());
+    System.out.println("== CraftyClient ==");
+    CraftyStats stats = serverManager.getCrafty().get("default").getStats();
+    stats.getActions().forEach((action, s) -> System.out.printf("%-18s calls %d, failures %d, mean %.1fms, max %dms%n",
+      action, s.getCalls(), s.getFailures(), s.getMeanMillis(), s.getMaxMillis()));
+    System.out.printf("rejected by breaker %d%n", stats.getRejectedByBreaker());
+  }
+
+  private static long percentile(List<Long> sorted, double q) {
+    if (sorted.isEmpty()) return -1L;
+    int idx = (int) Math.ceil(q * sorted.size()) - 1;
+    return sorted.get(Math.max(0, Math.min(sorted.size() - 1, idx)));
+  }
+
+  private void close() {
+    driver.shutdownNow();
+    if (serverManager != null) serverManager.shutdown();
+    if (modeManager != null) modeManager.close();
+    sim.shutdown();
+    crafty.stop();
+  }
+}
@@ -0,0 +1,202 @@
+package com.lazymcvelocitycrafty.sim;
+
+import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import com.velocitypowered.api.scheduler.Scheduler;
+import com.velocitypowered.api.scheduler.TaskStatus;
+import net.kyori.adventure.text.Component;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Simulated Velocity layer: registered servers whose ping and connect outcome follow a
+ * readiness predicate (normally backed by {@link FakeCrafty}), synthetic players that can move
+ * between them, and a scheduler on a local executor.
+ */
+public class SimProxy {
+
+  private static final ServerPing PING = new ServerPing(new ServerPing.Version(765, "1.20.4"), null,
+    Component.text("sim"), null);
+
+  /** A synthetic player and the backend it is currently on. */
+  public final class SimPlayer {
+    private final UUID id;
+    private final String name;
+    private final Player player;
+    private volatile RegisteredServer current;
+
+    SimPlayer(UUID id, String name) {
+      this.id = id;
+      this.name = name;
+      this.player = Stubs.of(Player.class, Map.of(
+        "getUniqueId", a -> id,
+        "getUsername", a -> name,
+        "getCurrentServer", a -> Optional.ofNullable(connection()),
+        "createConnectionRequest", a -> request(this, (RegisteredServer) a[0])
+      ));
+    }
+
+    public UUID getId() { return id; }
+    public Player getPlayer() { return player; }
+    public Optional<RegisteredServer> getCurrent() { return Optional.ofNullable(current); }
+
+    private ServerConnection connection() {
+      RegisteredServer on = current;
+      if (on == null) return null;
+      return Stubs.of(ServerConnection.class, Map.of(
+        "getServerInfo", a -> on.getServerInfo(),
+        "getServer", a -> on,
+        "getPlayer", a -> player
+      ));
+    }
+  }
+
+  private final Predicate<String> isUp;
+  private final ConcurrentMap<String, RegisteredServer> servers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<UUID, SimPlayer> players = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2, r -> {
+    Thread t = new Thread(r, "sim-scheduler");
+    t.setDaemon(true);
+    return t;
+  });
+  private final ProxyServer proxy;
+  private volatile BiConsumer<SimPlayer, RegisteredServer> connectHook = (p, s) -> {};
+
+  /**
+   * @param isUp whether the named backend currently accepts pings and connections
+   */
+  public SimProxy(Predicate<String> isUp) {
+    this.isUp = isUp;
+    Scheduler scheduler = Stubs.of(Scheduler.class, Map.of(
+      "buildTask", a -> taskBuilder((Runnable) a[1])
+    ));
+    this.proxy = Stubs.of(ProxyServer.class, Map.of(
+      "getServer", a -> Optional.ofNullable(servers.get((String) a[0])),
+      "getAllServers", a -> List.copyOf(servers.values()),
+      "getPlayer", a -> (a[0] instanceof UUID)
+        ? Optional.ofNullable(players.get((UUID) a[0])).map(SimPlayer::getPlayer)
+        : Optional.empty(),
+      "getAllPlayers", a -> players.values().stream().map(SimPlayer::getPlayer).toList(),
+      "getPlayerCount", a -> players.size(),
+      "getScheduler", a -> scheduler
+    ));
+  }
+
+  public ProxyServer getProxy() { return proxy; }
+
+  /** Called after every successful connection, before the connect future completes. */
+  public void onConnected(BiConsumer<SimPlayer, RegisteredServer> hook) {
+    this.connectHook = hook;
+  }
+
+  public RegisteredServer register(String name) {
+    ServerInfo info = new ServerInfo(name, InetSocketAddress.createUnresolved("127.0.0.1", 25565));
+    RegisteredServer rs = Stubs.of(RegisteredServer.class, Map.of(
+      "getServerInfo", a -> info,
+      "ping", a -> isUp.test(name)
+        ? CompletableFuture.completedFuture(PING)
+        : CompletableFuture.failedFuture(new ConnectException("Connection refused: " + name))
+    ));
+    servers.put(name, rs);
+    return rs;
+  }
+
+  public RegisteredServer getServer(String name) {
+    return servers.get(name);
+  }
+
+  public SimPlayer join(UUID id, String name) {
+    SimPlayer p = new SimPlayer(id, name);
+    players.put(id, p);
+    return p;
+  }
+
+  public void leave(SimPlayer player) {
+    players.remove(player.id);
+    player.current = null;
+  }
+
+  public boolean isOnline(SimPlayer player) {
+    return players.containsKey(player.id);
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /** Moves the player if the backend is up; this is what Velocity's connect would end in. */
+  public boolean connect(SimPlayer player, RegisteredServer target) {
+    if (!isOnline(player) || !isUp.test(target.getServerInfo().getName())) return false;
+    player.current = target;
+    connectHook.accept(player, target);
+    return true;
+  }
+
+  private ConnectionRequestBuilder request(SimPlayer player, RegisteredServer target) {
+    return Stubs.of(ConnectionRequestBuilder.class, Map.of(
+      "getServer", a -> target,
+      "connect", a -> CompletableFuture.supplyAsync(() -> result(connect(player, target), target), executor)
+    ));
+  }
+
+  private static ConnectionRequestBuilder.Result result(boolean ok, RegisteredServer target) {
+    ConnectionRequestBuilder.Status status = ok
+      ? ConnectionRequestBuilder.Status.SUCCESS
+      : ConnectionRequestBuilder.Status.SERVER_DISCONNECTED;
+    return Stubs.of(ConnectionRequestBuilder.Result.class, Map.of(
+      "isSuccessful", a -> ok,
+      "getStatus", a -> status,
+      "getAttemptedConnection", a -> target
+    ));
+  }
+
+  // delay/repeat/schedule over the local executor; everything else on TaskBuilder is a no-op
+  private Scheduler.TaskBuilder taskBuilder(Runnable task) {
+    long[] delayRepeat = new long[2];
+    Scheduler.TaskBuilder[] self = new Scheduler.TaskBuilder[1];
+    self[0] = Stubs.of(Scheduler.TaskBuilder.class, Map.of(
+      "delay", a -> { delayRepeat[0] = millis(a); return self[0]; },
+      "repeat", a -> { delayRepeat[1] = millis(a); return self[0]; },
+      "clearDelay", a -> { delayRepeat[0] = 0; return self[0]; },
+      "clearRepeat", a -> { delayRepeat[1] = 0; return self[0]; },
+      "schedule", a -> schedule(task, delayRepeat[0], delayRepeat[1])
+    ));
+    return self[0];
+  }
+
+  private static long millis(Object[] a) {
+    if (a.length == 2) return ((TimeUnit) a[1]).toMillis((Long) a[0]);
+    return ((java.time.Duration) a[0]).toMillis();
+  }
+
+  private ScheduledTask schedule(Runnable task, long delayMillis, long repeatMillis) {
+    ScheduledFuture<?> future = (repeatMillis > 0)
+      ? executor.scheduleAtFixedRate(task, delayMillis, repeatMillis, TimeUnit.MILLISECONDS)
+      : executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    return Stubs.of(ScheduledTask.class, Map.of(
+      "cancel", a -> { future.cancel(false); return null; },
+      "status", a -> future.isCancelled() ? TaskStatus.CANCELLED
+        : future.isDone() ? TaskStatus.FINISHED : TaskStatus.SCHEDULED
+    ));
+  }
+}
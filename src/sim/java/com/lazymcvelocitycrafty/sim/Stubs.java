@@ -0,0 +1,55 @@
+package com.lazymcvelocitycrafty.sim;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Dynamic-proxy stubs for Velocity interfaces, so the simulator and benchmarks run without a proxy.
+ *
+ * Methods listed in the answer map are dispatched by name; everything else returns a neutral
+ * value (null, 0, false, Optional.empty(), empty collection, completed future).
+ */
+public final class Stubs {
+
+  private Stubs() {}
+
+  @SuppressWarnings("unchecked")
+  public static <T> T of(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+    return (T) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+      Function<Object[], Object> answer = answers.get(method.getName());
+      if (answer != null) return answer.apply(args == null ? new Object[0] : args);
+      if (method.getDeclaringClass() == Object.class) return objectMethod(proxy, method, args);
+      return neutral(method.getReturnType());
+    });
+  }
+
+  private static Object objectMethod(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "equals": return proxy == args[0];
+      case "hashCode": return System.identityHashCode(proxy);
+      default: return "Stub@" + Integer.toHexString(System.identityHashCode(proxy));
+    }
+  }
+
+  private static Object neutral(Class<?> rt) {
+    if (rt == boolean.class) return false;
+    if (rt == int.class || rt == short.class || rt == byte.class) return 0;
+    if (rt == long.class) return 0L;
+    if (rt == double.class) return 0.0;
+    if (rt == float.class) return 0.0f;
+    if (rt == char.class) return '\0';
+    if (rt == Optional.class) return Optional.empty();
+    if (rt == List.class || rt == Collection.class) return List.of();
+    if (rt == Set.class) return Set.of();
+    if (rt == Map.class) return Map.of();
+    if (rt == CompletableFuture.class) return CompletableFuture.completedFuture(null);
+    return null;
+  }
+}
@@ -0,0 +1,135 @@
+package com.lazymcvelocitycrafty.crafty;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CraftyClientTest {
+
+  private static final String UUID = "00000000-0000-0000-0000-000000000001";
+  private static final String START = "/api/v2/servers/" + UUID + "/action/start_server";
+  private static final String STATS = "/api/v2/servers/" + UUID + "/stats";
+
+  @TempDir
+  Path dir;
+
+  private final ScriptedCrafty crafty = new ScriptedCrafty();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    crafty.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    crafty.stop();
+  }
+
+  private CraftyClient client(String extra) throws Exception {
+    return ScriptedCrafty.client(crafty.config(dir, extra));
+  }
+
+  private static int failureStatus(CompletableFuture<?> f) {
+    ExecutionException ex = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+    return assertInstanceOf(CraftyException.class, ex.getCause()).getStatusCode();
+  }
+
+  @Test
+  void retriesServerErrorsUntilSuccess() throws Exception {
+    CraftyClient client = client("crafty.max_retries = 2\n");
+    crafty.respond(START, 503, 500);
+
+    assertEquals(200, client.serverAction(UUID, "start_server").get(5, TimeUnit.SECONDS).getStatusCode());
+    assertEquals(3, crafty.hits(START));
+    assertEquals(CircuitBreaker.State.CLOSED, client.getBreakerState());
+  }
+
+  @Test
+  void retriesTooManyRequests() throws Exception {
+    CraftyClient client = client("crafty.max_retries = 1\n");
+    crafty.respond(STATS, 429);
+
+    assertEquals(200, client.get("stats", STATS).get(5, TimeUnit.SECONDS).getStatusCode());
+    assertEquals(2, crafty.hits(STATS));
+  }
+
+  @Test
+  void givesUpAfterMaxRetries() throws Exception {
+    CraftyClient client = client("crafty.max_retries = 2\ncrafty.breaker_failure_threshold = 10\n");
+    crafty.respond(START, 503, 503, 503, 503);
+
+    assertEquals(503, failureStatus(client.serverAction(UUID, "start_server")));
+    assertEquals(3, crafty.hits(START));
+  }
+
+  @Test
+  void clientErrorsAreNotRetriedAndKeepBreakerClosed() throws Exception {
+    CraftyClient client = client("crafty.max_retries = 2\ncrafty.breaker_failure_threshold = 2\n");
+    crafty.respond(START, 404, 404, 403, 404);
+
+    for (int i = 0; i < 4; i++) {
+      failureStatus(client.serverAction(UUID, "start_server"));
+    }
+    assertEquals(4, crafty.hits(START));
+    assertEquals(CircuitBreaker.State.CLOSED, client.getBreakerState());
+  }
+
+  @Test
+  void breakerOpensAndFailsFast() throws Exception {
+    CraftyClient client = client("crafty.max_retries = 0\ncrafty.breaker_failure_threshold = 2\n"
+      + "crafty.breaker_open_seconds = 60\n");
+    crafty.respond(START, 500, 500);
+
+    failureStatus(client.serverAction(UUID, "start_server"));
+    failureStatus(client.serverAction(UUID, "start_server"));
+    assertEquals(CircuitBreaker.State.OPEN, client.getBreakerState());
+
+    // rejected locally, never sent
+    assertEquals(-1, failureStatus(client.serverAction(UUID, "start_server")));
+    assertEquals(2, crafty.hits(START));
+  }
+
+  @Test
+  void halfOpenTrialClosesBreakerOnSuccess() throws Exception {
+    CraftyClient client = client("crafty.max_retries = 0\ncrafty.breaker_failure_threshold = 1\n"
+      + "crafty.breaker_open_seconds = 1\n");
+    crafty.respond(START, 500);
+    failureStatus(client.serverAction(UUID, "start_server"));
+    assertEquals(CircuitBreaker.State.OPEN, client.getBreakerState());
+
+    Thread.sleep(1100);
+    assertEquals(200, client.serverAction(UUID, "start_server").get(5, TimeUnit.SECONDS).getStatusCode());
+    assertEquals(CircuitBreaker.State.CLOSED, client.getBreakerState());
+    assertEquals(2, crafty.hits(START));
+  }
+
+  @Test
+  void halfOpenAdmitsOneTrialAndReopensOnFailure() throws Exception {
+    CraftyClient client = client("crafty.max_retries = 0\ncrafty.breaker_failure_threshold = 1\n"
+      + "crafty.breaker_open_seconds = 1\n");
+    crafty.respond(START, 500);
+    failureStatus(client.serverAction(UUID, "start_server"));
+
+    Thread.sleep(1100);
+    crafty.respond(START, 502);
+    crafty.hold();
+    CompletableFuture<CraftyResponse> trial = client.serverAction(UUID, "start_server");
+    // a second call while the trial is in flight is rejected without being sent
+    assertEquals(-1, failureStatus(client.serverAction(UUID, "start_server")));
+    crafty.release();
+
+    assertEquals(502, failureStatus(trial));
+    assertEquals(CircuitBreaker.State.OPEN, client.getBreakerState());
+    assertEquals(2, crafty.hits(START));
+  }
+}
@@ -0,0 +1,96 @@
+package com.lazymcvelocitycrafty.crafty;
+
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import com.lazymcvelocitycrafty.server.BackendStateRegistry;
+import com.lazymcvelocitycrafty.server.ServerState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.helpers.NOPLogger;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CraftyStatusPollerTest {
+
+  private static final String UUID = "00000000-0000-0000-0000-000000000001";
+  private static final String STATS = "/api/v2/servers/" + UUID + "/stats";
+
+  @TempDir
+  Path dir;
+
+  private final ScriptedCrafty crafty = new ScriptedCrafty();
+  private final List<String> transitions = new CopyOnWriteArrayList<>();
+  private BackendStateRegistry states;
+  private CraftyStatusPoller poller;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    crafty.start();
+    PluginConfig config = crafty.config(dir, "crafty.max_retries = 0\nmax_start_wait_seconds = 0\n"
+      + "[servers.survival]\nuuid = \"" + UUID + "\"\n");
+    Metrics metrics = new Metrics();
+    // only probes use the proxy; the poller never does
+    states = new BackendStateRegistry(null, config, metrics, NOPLogger.NOP_LOGGER);
+    states.addListener((server, from, to) -> transitions.add(from + "->" + to));
+    poller = new CraftyStatusPoller(new CraftyClientPool(config, metrics, NOPLogger.NOP_LOGGER), config, states,
+      NOPLogger.NOP_LOGGER);
+  }
+
+  @AfterEach
+  void tearDown() {
+    crafty.stop();
+  }
+
+  private void sweepWith(String data) throws Exception {
+    crafty.body(STATS, "{\"status\":\"ok\",\"data\":" + data + "}");
+    poller.sweep().get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void followsBootUpAndCrash() throws Exception {
+    sweepWith("{\"running\":false,\"crashed\":false}");
+    assertEquals(ServerState.OFFLINE, states.getState("survival"));
+
+    sweepWith("{\"running\":true,\"crashed\":false,\"version\":\"False\"}");
+    assertEquals(ServerState.STARTING, states.getState("survival"));
+
+    sweepWith("{\"running\":true,\"crashed\":false,\"version\":\"1.21.1\"}");
+    assertEquals(ServerState.ONLINE, states.getState("survival"));
+
+    sweepWith("{\"running\":false,\"crashed\":true}");
+    assertEquals(ServerState.OFFLINE, states.getState("survival"));
+
+    assertEquals(List.of("OFFLINE->STARTING", "STARTING->ONLINE", "ONLINE->OFFLINE"), transitions);
+  }
+
+  @Test
+  void stoppedServerGoesOffline() throws Exception {
+    sweepWith("{\"running\":true,\"crashed\":false,\"version\":\"1.21.1\"}");
+    sweepWith("{\"running\":false,\"crashed\":false}");
+    assertEquals(ServerState.OFFLINE, states.getState("survival"));
+  }
+
+  @Test
+  void failedStatsCallKeepsState() throws Exception {
+    sweepWith("{\"running\":true,\"crashed\":false,\"version\":\"1.21.1\"}");
+    crafty.respond(STATS, 500);
+    poller.sweep().get(5, TimeUnit.SECONDS);
+    assertEquals(ServerState.ONLINE, states.getState("survival"));
+    assertEquals(2, crafty.hits(STATS));
+  }
+
+  @Test
+  void unreadableBodyKeepsState() throws Exception {
+    sweepWith("{\"running\":true,\"crashed\":false,\"version\":\"1.21.1\"}");
+    crafty.body(STATS, "<html>maintenance</html>");
+    poller.sweep().get(5, TimeUnit.SECONDS);
+    assertEquals(ServerState.ONLINE, states.getState("survival"));
+  }
+}
@@ -0,0 +1,139 @@
+package com.lazymcvelocitycrafty.crafty;
+
+import com.lazymcvelocitycrafty.config.CraftyHostSettings;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the Crafty v2 API driven by the test: each path answers with the statuses
+ * queued for it, then 200 with its configured body. Requests can be held until released, to keep
+ * a call in flight.
+ */
+public final class ScriptedCrafty {
+
+  private final Map<String, Deque<Integer>> statuses = new ConcurrentHashMap<>();
+  private final Map<String, String> bodies = new ConcurrentHashMap<>();
+  private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+  private volatile CountDownLatch gate;
+  private HttpServer server;
+
+  public void start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/api/v2/", this::handle);
+    server.setExecutor(Executors.newCachedThreadPool(r -> {
+      Thread t = new Thread(r, "scripted-crafty");
+      t.setDaemon(true);
+      return t;
+    }));
+    server.start();
+  }
+
+  public void stop() {
+    release();
+    if (server != null) server.stop(0);
+  }
+
+  public String url() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /**
+   * Answer the next requests to path with these statuses, in order; 200 afterwards.
+   */
+  public void respond(String path, int... codes) {
+    Deque<Integer> queue = statuses.computeIfAbsent(path, k -> new ArrayDeque<>());
+    synchronized (queue) {
+      for (int code : codes) queue.addLast(code);
+    }
+  }
+
+  /**
+   * Body of 200 answers for path.
+   */
+  public void body(String path, String body) {
+    bodies.put(path, body);
+  }
+
+  public int hits(String path) {
+    AtomicInteger n = hits.get(path);
+    return (n == null) ? 0 : n.get();
+  }
+
+  /**
+   * Park every request from now on until {@link #release}.
+   */
+  public void hold() {
+    gate = new CountDownLatch(1);
+  }
+
+  public void release() {
+    CountDownLatch g = gate;
+    gate = null;
+    if (g != null) g.countDown();
+  }
+
+  /**
+   * Writes a config.toml pointing crafty.host at this server, followed by extra, and loads it.
+   */
+  public PluginConfig config(Path dir, String extra) throws IOException {
+    String toml = "crafty.host = \"" + url() + "\"\n"
+      + "crafty.api_key = \"test\"\n"
+      + "watch_config = false\n"
+      + extra;
+    Files.writeString(dir.resolve("config.toml"), toml);
+    return PluginConfig.load(dir, NOPLogger.NOP_LOGGER);
+  }
+
+  /**
+   * A client for the default Crafty host of config.
+   */
+  public static CraftyClient client(PluginConfig config) {
+    return new CraftyClientPool(config, new Metrics(), NOPLogger.NOP_LOGGER).get(CraftyHostSettings.DEFAULT_ID);
+  }
+
+  private void handle(HttpExchange ex) throws IOException {
+    String path = ex.getRequestURI().getPath();
+    hits.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+    CountDownLatch g = gate;
+    if (g != null) {
+      try {
+        g.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    Integer status = null;
+    Deque<Integer> queue = statuses.get(path);
+    if (queue != null) {
+      synchronized (queue) {
+        status = queue.pollFirst();
+      }
+    }
+    int code = (status == null) ? 200 : status;
+    String body = (code == 200) ? bodies.getOrDefault(path, "{\"status\":\"ok\",\"data\":{}}") : "{\"status\":\"error\"}";
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    ex.getResponseHeaders().set("Content-Type", "application/json");
+    ex.sendResponseHeaders(code, bytes.length);
+    try (OutputStream out = ex.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.lazymcvelocitycrafty.server;
+
+import com.lazymcvelocitycrafty.crafty.CraftyClient;
+import com.lazymcvelocitycrafty.crafty.ScriptedCrafty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActionSequencerTest {
+
+  private static final String UUID = "00000000-0000-0000-0000-000000000001";
+  private static final String START = "/api/v2/servers/" + UUID + "/action/start_server";
+  private static final String STOP = "/api/v2/servers/" + UUID + "/action/stop_server";
+
+  @TempDir
+  Path dir;
+
+  private final ScriptedCrafty crafty = new ScriptedCrafty();
+  private final ActionSequencer actions = new ActionSequencer();
+  private CraftyClient client;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    crafty.start();
+    client = ScriptedCrafty.client(crafty.config(dir, ""));
+  }
+
+  @AfterEach
+  void tearDown() {
+    crafty.stop();
+  }
+
+  private CompletableFuture<Void> send(String action) {
+    return client.serverAction(UUID, action).thenApply(resp -> null);
+  }
+
+  @Test
+  void concurrentStartsShareOneRequest() throws Exception {
+    crafty.hold();
+    List<ActionSequencer.Submission> subs = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      subs.add(actions.submit("survival", ActionSequencer.Action.START, () -> send("start_server")));
+    }
+    assertTrue(actions.isPending("survival", ActionSequencer.Action.START));
+    assertFalse(subs.get(0).joined);
+    for (ActionSequencer.Submission sub : subs.subList(1, subs.size())) {
+      assertTrue(sub.joined);
+      assertSame(subs.get(0).future, sub.future);
+    }
+
+    crafty.release();
+    subs.get(0).future.get(5, TimeUnit.SECONDS);
+    assertEquals(1, crafty.hits(START));
+    assertFalse(actions.isPending("survival", ActionSequencer.Action.START));
+  }
+
+  @Test
+  void startAfterCompletionSendsAgain() throws Exception {
+    actions.submit("survival", ActionSequencer.Action.START, () -> send("start_server")).future.get(5, TimeUnit.SECONDS);
+    actions.submit("survival", ActionSequencer.Action.START, () -> send("start_server")).future.get(5, TimeUnit.SECONDS);
+    assertEquals(2, crafty.hits(START));
+  }
+
+  @Test
+  void startDuringStopRunsAfterIt() throws Exception {
+    crafty.hold();
+    CompletableFuture<Void> stop = actions.submit("survival", ActionSequencer.Action.STOP, () -> send("stop_server")).future;
+    ActionSequencer.Submission start = actions.submit("survival", ActionSequencer.Action.START, () -> send("start_server"));
+    assertTrue(start.queuedBehindOther);
+    assertEquals(0, crafty.hits(START));
+
+    crafty.release();
+    stop.get(5, TimeUnit.SECONDS);
+    start.future.get(5, TimeUnit.SECONDS);
+    assertEquals(1, crafty.hits(STOP));
+    assertEquals(1, crafty.hits(START));
+  }
+
+  @Test
+  void failedStartIsSharedAndCleared() throws Exception {
+    crafty.respond(START, 404);
+    ActionSequencer.Submission first = actions.submit("survival", ActionSequencer.Action.START, () -> send("start_server"));
+    first.future.handle((v, ex) -> null).get(5, TimeUnit.SECONDS);
+    assertTrue(first.future.isCompletedExceptionally());
+    assertFalse(actions.isPending("survival", ActionSequencer.Action.START));
+  }
+}
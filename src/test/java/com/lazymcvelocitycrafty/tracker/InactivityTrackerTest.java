@@ -0,0 +1,93 @@
+package com.lazymcvelocitycrafty.tracker;
+
+import com.lazymcvelocitycrafty.LazyMCVelocityCrafty;
+import com.lazymcvelocitycrafty.OfflineWiring;
+import com.lazymcvelocitycrafty.config.PluginConfig;
+import com.lazymcvelocitycrafty.crafty.ScriptedCrafty;
+import com.lazymcvelocitycrafty.group.GroupManager;
+import com.lazymcvelocitycrafty.metrics.Metrics;
+import com.lazymcvelocitycrafty.mode.ModeManager;
+import com.lazymcvelocitycrafty.prewarm.PrewarmManager;
+import com.lazymcvelocitycrafty.server.ServerManager;
+import com.lazymcvelocitycrafty.server.ServerState;
+import com.lazymcvelocitycrafty.sim.SimProxy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InactivityTrackerTest {
+
+  private static final Logger LOG = NOPLogger.NOP_LOGGER;
+  private static final String UUID = "00000000-0000-0000-0000-000000000001";
+  private static final String STOP = "/api/v2/servers/" + UUID + "/action/stop_server";
+
+  @TempDir
+  Path dir;
+
+  private final ScriptedCrafty crafty = new ScriptedCrafty();
+  // the backend always answers pings, so probes keep it ONLINE
+  private final SimProxy sim = new SimProxy(name -> true);
+  private ServerManager serverManager;
+  private ModeManager modeManager;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    crafty.start();
+    sim.register("survival");
+    PluginConfig config = crafty.config(dir, "crafty.max_retries = 0\ncheck_interval_seconds = 1\n"
+      + "shutdown.stagger_seconds = 0\n"
+      + "[servers.survival]\nuuid = \"" + UUID + "\"\nidle_timeout_seconds = 1\n");
+    LazyMCVelocityCrafty plugin = new LazyMCVelocityCrafty(sim.getProxy(), LOG, dir);
+    serverManager = new ServerManager(plugin, config, new Metrics(), LOG);
+    modeManager = new ModeManager(dir, LOG);
+    modeManager.load();
+    PrewarmManager prewarm = new PrewarmManager(plugin, config, serverManager, modeManager, dir, LOG);
+    GroupManager groups = new GroupManager(plugin, config, serverManager, modeManager, LOG);
+    InactivityTracker tracker = new InactivityTracker(plugin, config, modeManager, serverManager, LOG);
+    OfflineWiring.attach(plugin, config, serverManager, modeManager, prewarm, groups, tracker);
+    tracker.scheduleChecker();
+  }
+
+  @AfterEach
+  void tearDown() {
+    serverManager.shutdown();
+    modeManager.close();
+    sim.shutdown();
+    crafty.stop();
+  }
+
+  private static boolean await(BooleanSupplier condition, long millis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + millis;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) return false;
+      Thread.sleep(20);
+    }
+    return true;
+  }
+
+  @Test
+  void failedIdleStopIsRetried() throws Exception {
+    crafty.respond(STOP, 500);
+    assertTrue(await(() -> serverManager.getServerState("survival") == ServerState.ONLINE, 5000));
+
+    // first stop after 1s idle fails; the retry after check_interval_seconds goes through
+    assertTrue(await(() -> crafty.hits(STOP) >= 2, 10000), "stop was not retried");
+    assertTrue(await(() -> serverManager.getServerState("survival") == ServerState.STOPPING, 5000));
+  }
+
+  @Test
+  void successfulIdleStopIsNotRepeated() throws Exception {
+    assertTrue(await(() -> crafty.hits(STOP) >= 1, 10000));
+    Thread.sleep(2500);
+    assertEquals(1, crafty.hits(STOP));
+  }
+}